@@ -0,0 +1,67 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import main.PlayAiController;
+import nn.AiFeedForwardController;
+import nn.AiGeneticEvolution;
+
+//Breeding throughput and the wall time of one full generation of AiGeneticEvolution.
+
+@State(Scope.Thread)
+@Fork(1)
+public class EvolutionBenchmark {
+
+    @Param({"1"})
+    public int workers;
+
+    private AiGeneticEvolution evolution;
+    private AiFeedForwardController parent1;
+    private AiFeedForwardController parent2;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        PlayAiController.logger.setLevel(java.util.logging.Level.WARNING);
+        evolution = new AiGeneticEvolution(42, workers);
+        parent1 = evolution.getBestNetwork();
+        parent2 = evolution.breed(parent1, parent1);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        evolution.close();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @Warmup(iterations = 3, time = 1)
+    @Measurement(iterations = 5, time = 1)
+    public AiFeedForwardController crossoverAndMutate() {
+        return evolution.breed(parent1, parent2);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 5)
+    public int generation() {
+        evolution.nextGeneration();
+        return evolution.getGeneration();
+    }
+}
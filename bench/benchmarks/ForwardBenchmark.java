@@ -0,0 +1,91 @@
+package benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import controllers.GameController;
+import main.PlayAiController;
+import nn.AiFeedForwardController;
+import nn.NetworkCompiler;
+import nn.QuantizedController;
+import nn.SparseNetwork;
+import space.Simulation;
+
+//Cost of one inference of the 112x25x4 network on a real game observation.
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ForwardBenchmark {
+
+    private AiFeedForwardController network;
+    private QuantizedController float32;
+    private QuantizedController int8;
+    private GameController compiled;
+    private SparseNetwork sparse;
+    private double[] state;
+
+    @Setup
+    public void setUp() {
+        PlayAiController.logger.setLevel(Level.WARNING);
+        network = new AiFeedForwardController();
+        network.initializeWeightsAndBiases(new Random(42));
+
+        Simulation simulation = new Simulation(network);
+        simulation.reset(42);
+        for (int i = 0; i < 50 && !simulation.isTerminal(); i++)
+            simulation.step();
+        state = simulation.observe().clone();
+
+        float32 = new QuantizedController(network, QuantizedController.Precision.FLOAT32);
+        int8 = new QuantizedController(network, QuantizedController.Precision.INT8);
+        compiled = NetworkCompiler.compile(network);
+        // about half of the weights, which are uniform in [-0.5, 0.5]
+        sparse = new SparseNetwork(SparseNetwork.prune(network, 0.25));
+    }
+
+    @Benchmark
+    public double[] forward() {
+        return network.forward(state);
+    }
+
+    @Benchmark
+    public double[] nextMove() {
+        return network.nextMove(state);
+    }
+
+    @Benchmark
+    public int decideFloat32() {
+        return float32.decide(state);
+    }
+
+    @Benchmark
+    public int decideInt8() {
+        return int8.decide(state);
+    }
+
+    @Benchmark
+    public double[] nextMoveCompiled() {
+        return compiled.nextMove(state);
+    }
+
+    @Benchmark
+    public double[] nextMoveSparse() {
+        return sparse.nextMove(state);
+    }
+}
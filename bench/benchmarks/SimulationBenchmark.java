@@ -0,0 +1,60 @@
+package benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import main.PlayAiController;
+import nn.AiFeedForwardController;
+import space.Simulation;
+
+//Ticks per second of Simulation.step() and episodes per second of Simulation.run().
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SimulationBenchmark {
+
+    private static final int SEED = 42;
+
+    private Simulation simulation;
+    private int episodes;
+
+    @Setup
+    public void setUp() {
+        PlayAiController.logger.setLevel(Level.WARNING);
+        AiFeedForwardController network = new AiFeedForwardController();
+        network.initializeWeightsAndBiases(new Random(SEED));
+        simulation = new Simulation(network);
+        simulation.reset(SEED);
+    }
+
+    @Benchmark
+    public int tick() {
+        if (simulation.isTerminal())
+            simulation.reset(SEED + ++episodes);
+        simulation.step();
+        return simulation.getTime();
+    }
+
+    @Benchmark
+    public double episode() {
+        simulation.reset(SEED + ++episodes);
+        simulation.run();
+        return simulation.getFitness();
+    }
+}
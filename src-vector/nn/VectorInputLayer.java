@@ -0,0 +1,32 @@
+package nn;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorSpecies;
+
+/*
+ * The input layer on the Vector API: each input row is added to the hidden
+ * sums SPECIES.length() units at a time and the remainder in scalar code.
+ * Every lane multiplies and then adds, without fusing the two, as the scalar
+ * loop does. Built with the vector profile only.
+ */
+final class VectorInputLayer implements InputLayer {
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    @Override
+    public void accumulate(double[] input, double[] genome, int offset, double[] hidden) {
+        int units = AiFeedForwardController.HIDDEN_DIM;
+        int bound = SPECIES.loopBound(units);
+        for (int i = 0; i < input.length; i++) {
+            double d = input[i];
+            if (d == 0.0) continue;
+            int row = offset + i * units;
+            int j = 0;
+            for (; j < bound; j += SPECIES.length()) {
+                DoubleVector weights = DoubleVector.fromArray(SPECIES, genome, row + j);
+                DoubleVector.fromArray(SPECIES, hidden, j).add(weights.mul(d)).intoArray(hidden, j);
+            }
+            for (; j < units; j++)
+                hidden[j] += d * genome[row + j];
+        }
+    }
+}
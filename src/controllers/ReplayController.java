@@ -0,0 +1,53 @@
+package controllers;
+
+import java.util.Arrays;
+
+import space.Commons;
+import space.EpisodeTrace;
+
+//The ReplayController plays back the actions of an EpisodeTrace, one per call, whatever the state.
+
+public class ReplayController implements GameController {
+
+	private final EpisodeTrace trace;
+	private final double[] output = new double[Commons.NUM_ACTIONS];
+	private int tick;
+
+	public ReplayController(EpisodeTrace trace) {
+		this.trace = trace;
+	}
+
+	public EpisodeTrace getTrace() {
+		return trace;
+	}
+
+	/*
+	 * The next call returns the action of the given tick.
+	 */
+	public void seek(int tick) {
+		this.tick = tick;
+	}
+
+	public int getTick() {
+		return tick;
+	}
+
+	public boolean isFinished() {
+		return tick >= trace.getTicks();
+	}
+
+	/*
+	 * Past the end of the trace the player stands still and holds fire.
+	 */
+	@Override
+	public double[] nextMove(double[] currentState) {
+
+		if (isFinished()) {
+			tick++;
+			Arrays.fill(output, 0);
+			return output;
+		}
+
+		return trace.getOutput(tick++, output);
+	}
+}
@@ -1,23 +1,130 @@
 package main;
 
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Random;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import controllers.GameController;
+import nn.AiFeedForwardController;
 import nn.AiGeneticEvolution;
+import nn.Checkpoint;
+import nn.NetworkCompiler;
+import nn.RemoteEvaluator;
+import nn.SparseNetwork;
+import space.EpisodeTrace;
 import space.SpaceInvaders;
 
+/*
+ * Without arguments, trains a network on a random seed and shows it playing,
+ * checkpointing to the file given by -Dcheckpoint=<file> if any.
+ * "resume <file> [<address>...]" continues the run saved in a checkpoint, on
+ * RunWorker processes if addresses are given, checkpointing to the same file,
+ * and "play <file> [compiled|sparse]" shows the best network of a
+ * checkpoint, compiled by NetworkCompiler or as a SparseNetwork if asked.
+ * "prune <checkpoint> <output> [tolerance]" saves the checkpoint with its best
+ * network pruned by SparseNetwork.prune on the run's seeds and tick budget.
+ * "remote <address>..." trains with the episodes played by RunWorker processes.
+ * "record <checkpoint> <trace>" saves the game of the best network of a
+ * checkpoint as an episode trace, which "replay <trace> [speed]" shows.
+ */
 public class PlayAiController {
 
     public static final Logger logger = Logger.getLogger(Logger.GLOBAL_LOGGER_NAME);
 
-    public static void main(String[] args) {
+    private static final int CHECKPOINT_INTERVAL = 10;
+
+    public static void main(String[] args) throws IOException {
+
+        if ((args.length == 2 || args.length == 3 && args[2].matches("compiled|sparse")) && args[0].equals("play")) {
+            Checkpoint checkpoint = Checkpoint.read(Path.of(args[1]));
+            GameController controller = checkpoint.getBestNetwork();
+            if (args.length == 3 && args[2].equals("compiled")) controller = NetworkCompiler.compile(checkpoint.getBestNetwork());
+            if (args.length == 3 && args[2].equals("sparse")) controller = new SparseNetwork(checkpoint.getBestNetwork());
+            SpaceInvaders.showControllerPlaying(controller, checkpoint.getSeedBoard());
+            return;
+        }
+
+        if ((args.length == 3 || args.length == 4) && args[0].equals("prune")) {
+            Checkpoint checkpoint = Checkpoint.read(Path.of(args[1]));
+            double tolerance = args.length == 4 ? Double.parseDouble(args[3]) : 0;
+            AiFeedForwardController pruned = SparseNetwork.prune(checkpoint, tolerance);
+            new Checkpoint(checkpoint.getSeedBoard(), checkpoint.getEvolutionSeed(), checkpoint.getMaxTicks(), checkpoint.getGeneration(),
+                    checkpoint.getRacingSeeds(), checkpoint.getAnchorInterval(), checkpoint.getPopulation(), pruned).write(Path.of(args[2]));
+            return;
+        }
+
+        if (args.length == 3 && args[0].equals("record")) {
+            Checkpoint checkpoint = Checkpoint.read(Path.of(args[1]));
+            EpisodeTrace trace = checkpoint.getBestNetwork().record(checkpoint.getSeedBoard());
+            trace.write(Path.of(args[2]));
+            logger.log(Level.INFO, "Recorded {0} ticks in {1} runs", new Object[]{trace.getTicks(), trace.getRuns()});
+            return;
+        }
+
+        if ((args.length == 2 || args.length == 3) && args[0].equals("replay")) {
+            EpisodeTrace trace = EpisodeTrace.read(Path.of(args[1]));
+            SpaceInvaders.showReplay(trace, args.length == 3 ? Integer.parseInt(args[2]) : 1);
+            return;
+        }
+
+        if (args.length == 2 && args[0].equals("resume")) {
+            Path path = Path.of(args[1]);
+            try (AiGeneticEvolution nn = AiGeneticEvolution.resume(path, Runtime.getRuntime().availableProcessors())) {
+                nn.setCheckpointing(path, CHECKPOINT_INTERVAL);
+                SpaceInvaders.showControllerPlaying(nn.train(), nn.checkpoint().getSeedBoard());
+            }
+            return;
+        }
+
+        if (args.length > 2 && args[0].equals("resume")) {
+            Path path = Path.of(args[1]);
+            Checkpoint checkpoint = Checkpoint.read(path);
+            try (RemoteEvaluator remote = new RemoteEvaluator(addresses(args, 2));
+                 AiGeneticEvolution nn = AiGeneticEvolution.resume(checkpoint, remote)) {
+                nn.setCheckpointing(path, CHECKPOINT_INTERVAL);
+                SpaceInvaders.showControllerPlaying(nn.train(), checkpoint.getSeedBoard());
+            }
+            return;
+        }
+
+        if (args.length >= 2 && args[0].equals("remote")) {
+            int seed = new Random().nextInt();
+            logger.log(Level.INFO, "Seed: {0}", seed);
+            try (RemoteEvaluator remote = new RemoteEvaluator(addresses(args, 1));
+                 AiGeneticEvolution nn = new AiGeneticEvolution(seed, seed, Integer.MAX_VALUE, remote)) {
+                checkpointing(nn);
+                SpaceInvaders.showControllerPlaying(nn.train(), seed);
+            }
+            return;
+        }
 
         Random random = new Random();
         int seed = random.nextInt();
         logger.log(Level.INFO, "Seed: {0}", seed);
 
-        AiGeneticEvolution nn = new AiGeneticEvolution(seed);
-        SpaceInvaders.showControllerPlaying(nn.train(), seed);
+        try (AiGeneticEvolution nn = new AiGeneticEvolution(seed)) {
+            checkpointing(nn);
+            SpaceInvaders.showControllerPlaying(nn.train(), seed);
+        }
+    }
+
+    private static List<SocketAddress> addresses(String[] args, int first) {
+        List<SocketAddress> workers = new ArrayList<>();
+        for (int i = first; i < args.length; i++)
+            workers.add(RemoteEvaluator.parseAddress(args[i]));
+        return workers;
+    }
+
+    /*
+     * New runs checkpoint to the file given by -Dcheckpoint, if any.
+     */
+    private static void checkpointing(AiGeneticEvolution nn) {
+        String path = System.getProperty("checkpoint");
+        if (path != null) nn.setCheckpointing(Path.of(path), CHECKPOINT_INTERVAL);
     }
 }
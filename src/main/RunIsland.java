@@ -0,0 +1,56 @@
+package main;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import nn.IslandEvolution;
+import nn.MappedMigrationChannel;
+
+/*
+ * Runs one island of an IslandEvolution in this process, migrating through a
+ * memory-mapped file shared with the processes running the other islands:
+ *
+ * RunIsland <migration file> <islands> <island> <seed> <generations>
+ *           [<migration interval> <migrants> <ring|full>]
+ *
+ * Every process of a run must be given the same settings; by default migrants
+ * are sent every 5 generations, 2 at a time, along a ring. Each process gets
+ * an equal share of the cores. The island's
+ * population is saved as a checkpoint next to the migration file, which
+ * "PlayAiController play" can show and "PlayAiController resume" continue.
+ */
+public class RunIsland {
+
+    private static final int MIGRATION_INTERVAL = 5;
+    private static final int MIGRANTS = 2;
+
+    public static void main(String[] args) throws IOException {
+
+        if (args.length != 5 && args.length != 8) {
+            System.err.println("Usage: RunIsland <migration file> <islands> <island> <seed> <generations> "
+                    + "[<migration interval> <migrants> <ring|full>]");
+            System.exit(2);
+        }
+
+        Path path = Path.of(args[0]);
+        int islands = Integer.parseInt(args[1]);
+        int island = Integer.parseInt(args[2]);
+        int seed = Integer.parseInt(args[3]);
+        int generations = Integer.parseInt(args[4]);
+        int migrationInterval = args.length == 8 ? Integer.parseInt(args[5]) : MIGRATION_INTERVAL;
+        int migrants = args.length == 8 ? Integer.parseInt(args[6]) : MIGRANTS;
+        IslandEvolution.Topology topology = args.length == 8 ? parseTopology(args[7]) : IslandEvolution.Topology.RING;
+
+        // the island processes share the cores of this machine
+        int workers = Math.max(1, Runtime.getRuntime().availableProcessors() / islands);
+        IslandEvolution evolution = new IslandEvolution(seed, islands, workers, Integer.MAX_VALUE, migrationInterval, migrants, topology);
+        evolution.runIsland(island, new MappedMigrationChannel(path, seed, islands, migrants), generations)
+                .write(path.resolveSibling(path.getFileName() + ".island" + island));
+    }
+
+    private static IslandEvolution.Topology parseTopology(String name) {
+        if (name.equals("ring")) return IslandEvolution.Topology.RING;
+        if (name.equals("full")) return IslandEvolution.Topology.FULLY_CONNECTED;
+        throw new IllegalArgumentException("Unknown topology " + name + ", expected ring or full");
+    }
+}
@@ -0,0 +1,50 @@
+package main;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.file.Files;
+import java.util.logging.Level;
+
+import nn.EvaluationWorker;
+import nn.RemoteEvaluator;
+
+import static main.PlayAiController.logger;
+
+/*
+ * Serves Board episodes to coordinators started with "PlayAiController remote":
+ *
+ * RunWorker <host>:<port> | unix:<path> [threads]
+ *
+ * Port 0 picks a free port, which is printed on standard output.
+ */
+public class RunWorker {
+
+    public static void main(String[] args) throws IOException {
+
+        if (args.length < 1 || args.length > 2) {
+            System.err.println("Usage: RunWorker <host>:<port> | unix:<path> [threads]");
+            System.exit(2);
+        }
+
+        SocketAddress address = RemoteEvaluator.parseAddress(args[0]);
+        int threads = args.length == 2 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+
+        ServerSocketChannel server;
+        if (address instanceof UnixDomainSocketAddress) {
+            Files.deleteIfExists(((UnixDomainSocketAddress) address).getPath());
+            server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        } else {
+            server = ServerSocketChannel.open();
+        }
+        server.bind(address);
+
+        SocketAddress bound = server.getLocalAddress();
+        if (bound instanceof InetSocketAddress) System.out.println(((InetSocketAddress) bound).getPort());
+        logger.log(Level.INFO, "Evaluating on {0} threads at {1}", new Object[]{threads, bound});
+        new EvaluationWorker(threads).serve(server);
+    }
+}
@@ -0,0 +1,187 @@
+package main;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+import space.Commons;
+
+import static main.PlayAiController.logger;
+
+/*
+ * Training metrics: episodes and ticks played, time spent per phase, and
+ * histograms of episode length and fitness, gathered in LongAdders by every
+ * thread and written out as one row per generation. The counters are for the
+ * whole process, so runs sharing a JVM are counted together.
+ *
+ * Telemetry is on when the telemetry system property names a file, written as
+ * CSV when it ends in .csv and as JSON lines otherwise. When it is off every
+ * call returns at once on a constant the JIT folds away.
+ *
+ * The Episode and Forward JFR events are independent of this switch: they
+ * are recorded whenever a flight recording enables them. A Forward event is
+ * only created while that is the case, as it would otherwise cost the
+ * allocation-free tick an allocation.
+ */
+public final class Telemetry {
+
+    public enum Phase {
+        SIMULATE, INFER, SELECT, BREED
+    }
+
+    private static final Path PATH = System.getProperty("telemetry") == null ? null : Path.of(System.getProperty("telemetry"));
+    private static final boolean ENABLED = PATH != null;
+    private static final boolean CSV = ENABLED && PATH.toString().endsWith(".csv");
+
+    // episode lengths by power of two, fitness by aliens killed
+    private static final int LENGTH_BUCKETS = 32;
+    private static final int FITNESS_BUCKETS = Commons.NUMBER_OF_ALIENS_TO_DESTROY + 1;
+
+    private static final EventType FORWARD = EventType.getEventType(ForwardEvent.class);
+
+    private static final LongAdder episodes = new LongAdder();
+    private static final LongAdder ticks = new LongAdder();
+    private static final LongAdder[] phaseNanos = adders(Phase.values().length);
+    private static final LongAdder[] lengths = adders(LENGTH_BUCKETS);
+    private static final LongAdder[] fitnesses = adders(FITNESS_BUCKETS);
+
+    private static BufferedWriter writer;
+    private static long lastRow = System.nanoTime();
+
+    private Telemetry() {
+    }
+
+    private static LongAdder[] adders(int count) {
+        LongAdder[] adders = new LongAdder[count];
+        for (int i = 0; i < count; i++)
+            adders[i] = new LongAdder();
+        return adders;
+    }
+
+    public static boolean isEnabled() {
+        return ENABLED;
+    }
+
+    /*
+     * Whether a flight recording takes Forward events right now.
+     */
+    public static boolean isForwardRecorded() {
+        return FORWARD.isEnabled();
+    }
+
+    /*
+     * A start time for stop, or 0 when telemetry is off.
+     */
+    public static long start() {
+        return ENABLED ? System.nanoTime() : 0;
+    }
+
+    public static void stop(Phase phase, long start) {
+        if (ENABLED) phaseNanos[phase.ordinal()].add(System.nanoTime() - start);
+    }
+
+    public static void episode(int length, double fitness) {
+        if (!ENABLED) return;
+        episodes.increment();
+        ticks.add(length);
+        lengths[Math.min(LENGTH_BUCKETS - 1, 32 - Integer.numberOfLeadingZeros(length))].increment();
+        fitnesses[(int) Math.max(0, Math.min(FITNESS_BUCKETS - 1, fitness / 10000))].increment();
+    }
+
+    /*
+     * Writes the metrics gathered since the previous row and starts counting
+     * again.
+     */
+    public static synchronized void generation(int generation, double bestFitness) {
+        if (!ENABLED) return;
+
+        long now = System.nanoTime();
+        double seconds = Math.max(1e-9, (now - lastRow) / 1e9);
+        lastRow = now;
+
+        long episodeCount = episodes.sumThenReset();
+        long tickCount = ticks.sumThenReset();
+        long[] phases = sumThenReset(phaseNanos);
+        long[] lengthCounts = sumThenReset(lengths);
+        long[] fitnessCounts = sumThenReset(fitnesses);
+
+        StringBuilder row = new StringBuilder();
+        if (CSV) {
+            row.append(generation).append(',').append(Math.round(seconds * 1000)).append(',')
+                    .append(episodeCount).append(',').append(tickCount).append(',')
+                    .append(episodeCount / seconds).append(',').append(tickCount / seconds);
+            for (long nanos : phases)
+                row.append(',').append(nanos / 1_000_000);
+            row.append(',').append(bestFitness).append(',').append(join(lengthCounts, ';')).append(',').append(join(fitnessCounts, ';'));
+        } else {
+            row.append("{\"generation\":").append(generation)
+                    .append(",\"elapsedMs\":").append(Math.round(seconds * 1000))
+                    .append(",\"episodes\":").append(episodeCount)
+                    .append(",\"ticks\":").append(tickCount)
+                    .append(",\"episodesPerSecond\":").append(episodeCount / seconds)
+                    .append(",\"ticksPerSecond\":").append(tickCount / seconds);
+            for (Phase phase : Phase.values())
+                row.append(",\"").append(phase.name().toLowerCase()).append("Ms\":").append(phases[phase.ordinal()] / 1_000_000);
+            row.append(",\"bestFitness\":").append(bestFitness)
+                    .append(",\"episodeLengthLog2\":[").append(join(lengthCounts, ',')).append(']')
+                    .append(",\"kills\":[").append(join(fitnessCounts, ',')).append("]}");
+        }
+
+        try {
+            if (writer == null) {
+                writer = Files.newBufferedWriter(PATH);
+                if (CSV) writer.write("generation,elapsedMs,episodes,ticks,episodesPerSecond,ticksPerSecond,"
+                        + "simulateMs,inferMs,selectMs,breedMs,bestFitness,episodeLengthLog2,kills\n");
+            }
+            writer.write(row.append('\n').toString());
+            writer.flush();
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Could not write telemetry to " + PATH, e);
+        }
+    }
+
+    private static long[] sumThenReset(LongAdder[] adders) {
+        long[] sums = new long[adders.length];
+        for (int i = 0; i < adders.length; i++)
+            sums[i] = adders[i].sumThenReset();
+        return sums;
+    }
+
+    private static String join(long[] values, char separator) {
+        StringBuilder joined = new StringBuilder();
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) joined.append(separator);
+            joined.append(values[i]);
+        }
+        return joined.toString();
+    }
+
+    @Name("spaceinvaders.Episode")
+    @Label("Episode")
+    @Category("Space Invaders")
+    public static class EpisodeEvent extends Event {
+        @Label("Ticks")
+        public int ticks;
+
+        @Label("Aliens Killed")
+        public int deaths;
+
+        @Label("Fitness")
+        public double fitness;
+    }
+
+    @Name("spaceinvaders.Forward")
+    @Label("Forward Pass")
+    @Category("Space Invaders")
+    public static class ForwardEvent extends Event {
+    }
+}
@@ -1,29 +1,66 @@
 package nn;
 
 import controllers.GameController;
-import space.Board;
+import space.Simulation;
 import space.Commons;
+import space.EpisodeTrace;
 
 import java.util.Random;
+import java.util.random.RandomGenerator;
 import java.util.logging.Level;
 
+import main.Telemetry;
+
 import static main.PlayAiController.logger;
 
 public class AiFeedForwardController implements GameController, Comparable<AiFeedForwardController> {
-    private static final int INPUT_DIM = Commons.STATE_SIZE;
-    private static final int HIDDEN_DIM = 25;
-    private static final int OUTPUT_DIM = Commons.NUM_ACTIONS;
-    private double[][] inputWeights;
-    private double[] hiddenBiases;
-    private double[][] outputWeights;
-    private double[] outputBiases;
+    // shared with the other forms of this network in the package
+    static final int INPUT_DIM = Commons.STATE_SIZE;
+    static final int HIDDEN_DIM = 25;
+    static final int OUTPUT_DIM = Commons.NUM_ACTIONS;
+
+    /*
+     * All parameters live in one row-major genome array: the input weights
+     * (one row of HIDDEN_DIM per input), the hidden biases, the output weights
+     * (one row of OUTPUT_DIM per hidden unit) and the output biases.
+     */
+    private static final int INPUT_WEIGHTS = 0;
+    private static final int HIDDEN_BIASES = INPUT_WEIGHTS + INPUT_DIM * HIDDEN_DIM;
+    private static final int OUTPUT_WEIGHTS = HIDDEN_BIASES + HIDDEN_DIM;
+    private static final int OUTPUT_BIASES = OUTPUT_WEIGHTS + HIDDEN_DIM * OUTPUT_DIM;
+    public static final int GENOME_SIZE = OUTPUT_BIASES + OUTPUT_DIM;
+
+    /*
+     * The Vector API input layer, used when the vector system property is true
+     * and the build included it (mvn -Pvector, run with --add-modules
+     * jdk.incubator.vector); null for the scalar loop.
+     */
+    private static final InputLayer VECTOR_LAYER = vectorLayer();
+
+    private final double[] genome;
     private double fitness;
+    private SeedChain seedChain;
+    private final double[] hiddenScratch = new double[HIDDEN_DIM];
+    private final double[] outputScratch = new double[OUTPUT_DIM];
 
     public AiFeedForwardController() {
-        this.inputWeights = new double[this.getInputDim()][this.getHiddenDim()];
-        this.hiddenBiases = new double[this.getHiddenDim()];
-        this.outputWeights = new double[this.getHiddenDim()][this.getOutputDim()];
-        this.outputBiases = new double[this.getOutputDim()];
+        this.genome = new double[GENOME_SIZE];
+    }
+
+    public AiFeedForwardController(double[] genome) {
+        if (genome.length != GENOME_SIZE)
+            throw new IllegalArgumentException("Genome of size " + genome.length + " instead of " + GENOME_SIZE);
+        this.genome = genome;
+    }
+
+    private static InputLayer vectorLayer() {
+        if (!Boolean.getBoolean("vector")) return null;
+        try {
+            return (InputLayer) Class.forName("nn.VectorInputLayer").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            logger.log(Level.WARNING, "No Vector API input layer, using the scalar one: {0}", e.toString());
+            return null;
+        }
     }
 
     public int getInputDim() {
@@ -38,36 +75,55 @@ public class AiFeedForwardController implements GameController, Comparable<AiFee
         return OUTPUT_DIM;
     }
 
+    /*
+     * The backing array, not a copy: writes to it change the network.
+     */
+    public double[] getGenome() {
+        return genome;
+    }
+
     public void setInputWeights(int i, int j, double inputWeights) {
-        this.inputWeights[i][j] = inputWeights;
+        this.genome[INPUT_WEIGHTS + i * HIDDEN_DIM + j] = inputWeights;
     }
 
     public double getInputWeights(int i, int j) {
-        return inputWeights[i][j];
+        return genome[INPUT_WEIGHTS + i * HIDDEN_DIM + j];
     }
 
     public void setHiddenBiases(int i, double hiddenBiases) {
-        this.hiddenBiases[i] = hiddenBiases;
+        this.genome[HIDDEN_BIASES + i] = hiddenBiases;
     }
 
     public double getHiddenBiases(int i) {
-        return hiddenBiases[i];
+        return genome[HIDDEN_BIASES + i];
     }
 
     public void setOutputWeights(int i, int j, double outputWeights) {
-        this.outputWeights[i][j] = outputWeights;
+        this.genome[OUTPUT_WEIGHTS + i * OUTPUT_DIM + j] = outputWeights;
     }
 
     public double getOutputWeights(int i, int j) {
-        return outputWeights[i][j];
+        return genome[OUTPUT_WEIGHTS + i * OUTPUT_DIM + j];
     }
 
     public void setOutputBiases(int i, double outputBiases) {
-        this.outputBiases[i] = outputBiases;
+        this.genome[OUTPUT_BIASES + i] = outputBiases;
     }
 
     public double getOutputBiases(int i) {
-        return outputBiases[i];
+        return genome[OUTPUT_BIASES + i];
+    }
+
+    /*
+     * How this genome was produced, or null when that is not known (e.g. for a
+     * network read from a checkpoint).
+     */
+    public SeedChain getSeedChain() {
+        return seedChain;
+    }
+
+    public void setSeedChain(SeedChain seedChain) {
+        this.seedChain = seedChain;
     }
 
     public void setFitness(double fitness) {
@@ -79,8 +135,11 @@ public class AiFeedForwardController implements GameController, Comparable<AiFee
     }
 
     public void initializeWeightsAndBiases() {
-        Random random = new Random();
-        logger.log(Level.INFO, "-> Feed Forward weights generated with random {0}", random);
+        initializeWeightsAndBiases(new Random());
+    }
+
+    public void initializeWeightsAndBiases(RandomGenerator random) {
+        logger.log(Level.FINE, "-> Feed Forward weights generated with random {0}", random);
 
         for (int i = 0; i < this.getInputDim(); i++)
             for (int j = 0; j < this.getHiddenDim(); j++)
@@ -96,47 +155,176 @@ public class AiFeedForwardController implements GameController, Comparable<AiFee
     }
 
     public void calculateAndSetFitness(int seed) {
-        Board b = new Board(this);
-        b.setSeed(seed);
-        b.run();
-        this.setFitness(b.getFitness());
+        Simulation simulation = new Simulation(this);
+        simulation.setSeed(seed);
+        simulation.run();
+        this.setFitness(simulation.getFitness());
+    }
+
+    /*
+     * Plays at most maxTicks ticks and returns the number of ticks played.
+     */
+    public int calculateAndSetFitness(int seed, int maxTicks) {
+        Simulation simulation = new Simulation(this);
+        simulation.setSeed(seed);
+        simulation.setMaxTicks(maxTicks);
+        simulation.run();
+        this.setFitness(simulation.getFitness());
+        return simulation.getTime();
+    }
+
+    /*
+     * Plays the game of the seed as calculateAndSetFitness(seed) does and
+     * returns it as a trace, which can be replayed without this network.
+     */
+    public EpisodeTrace record(int seed) {
+        Simulation simulation = new Simulation(this);
+        EpisodeTrace trace = new EpisodeTrace(seed);
+        simulation.setSeed(seed);
+        simulation.setTrace(trace);
+        simulation.run();
+        this.setFitness(simulation.getFitness());
+        return trace;
     }
 
     public double[] forward(double[] input) {
-        double[] hidden = new double[this.getHiddenDim()];
-        for (int j = 0; j < this.getHiddenDim(); j++) {
-            double sum = 0.0;
-            for (int i = 0; i < this.getInputDim(); i++) {
+        return forward(input, new double[this.getHiddenDim()], new double[this.getOutputDim()]);
+    }
+
+    /*
+     * Same as forward(input) but works in the given buffers and returns output,
+     * so that a game tick does not allocate.
+     *
+     * Each layer is computed input row by input row: the inner loops run over
+     * contiguous genome entries, which lets the JIT vectorize them, and rows
+     * whose input is zero are skipped. Every unit still adds its terms in input
+     * order, so the result is the same as a dot product per unit. Floating-point
+     * addition is not associative, so the other forms of this network (the
+     * Vector API input layer, forwardBatch, NetworkCompiler and SparseNetwork)
+     * keep this order too, skipping only zero terms, and give the same outputs
+     * bit for bit.
+     */
+    public double[] forward(double[] input, double[] hidden, double[] output) {
+        Telemetry.ForwardEvent event = Telemetry.isForwardRecorded() ? new Telemetry.ForwardEvent() : null;
+        if (event != null) event.begin();
+        double[] g = genome;
+
+        for (int j = 0; j < HIDDEN_DIM; j++)
+            hidden[j] = 0.0;
+        if (VECTOR_LAYER != null) {
+            VECTOR_LAYER.accumulate(input, g, INPUT_WEIGHTS, hidden);
+        } else {
+            for (int i = 0; i < INPUT_DIM; i++) {
                 double d = input[i];
-                sum += d * getInputWeights(i, j);
+                if (d == 0.0) continue;
+                int row = INPUT_WEIGHTS + i * HIDDEN_DIM;
+                for (int j = 0; j < HIDDEN_DIM; j++)
+                    hidden[j] += d * g[row + j];
             }
-            hidden[j] = Math.max(0.0, sum + getHiddenBiases(j));
         }
-        double[] output = new double[this.getOutputDim()];
-        for (int j = 0; j < this.getOutputDim(); j++) {
-            double sum = 0.0;
-            for (int i = 0; i < this.getHiddenDim(); i++) {
-                sum += hidden[i] * getOutputWeights(i, j);
+        for (int j = 0; j < HIDDEN_DIM; j++)
+            hidden[j] = Math.max(0.0, hidden[j] + g[HIDDEN_BIASES + j]);
+
+        for (int j = 0; j < OUTPUT_DIM; j++)
+            output[j] = 0.0;
+        for (int i = 0; i < HIDDEN_DIM; i++) {
+            double h = hidden[i];
+            if (h == 0.0) continue;
+            int row = OUTPUT_WEIGHTS + i * OUTPUT_DIM;
+            for (int j = 0; j < OUTPUT_DIM; j++)
+                output[j] += h * g[row + j];
+        }
+        for (int j = 0; j < OUTPUT_DIM; j++)
+            output[j] += g[OUTPUT_BIASES + j];
+        softmax(output, 0);
+
+        if (event != null) event.commit();
+        return output;
+    }
+
+    /*
+     * Batched forward pass over the rows from (inclusive) to to (exclusive) of
+     * row-major matrices: inputs has rows of INPUT_DIM, hidden is scratch with
+     * rows of HIDDEN_DIM and outputs receives rows of OUTPUT_DIM. Rows whose
+     * active flag is false are left untouched; active may be null.
+     *
+     * Each weight row is loaded once and applied to every row of the batch,
+     * which gets the result forward() would give it.
+     */
+    public void forwardBatch(double[] inputs, double[] hidden, double[] outputs, int from, int to, boolean[] active) {
+        double[] g = genome;
+
+        for (int r = from; r < to; r++) {
+            if (active != null && !active[r]) continue;
+            for (int j = 0; j < HIDDEN_DIM; j++)
+                hidden[r * HIDDEN_DIM + j] = 0.0;
+            for (int j = 0; j < OUTPUT_DIM; j++)
+                outputs[r * OUTPUT_DIM + j] = 0.0;
+        }
+
+        for (int i = 0; i < INPUT_DIM; i++) {
+            int row = INPUT_WEIGHTS + i * HIDDEN_DIM;
+            for (int r = from; r < to; r++) {
+                if (active != null && !active[r]) continue;
+                double d = inputs[r * INPUT_DIM + i];
+                if (d == 0.0) continue;
+                int h = r * HIDDEN_DIM;
+                for (int j = 0; j < HIDDEN_DIM; j++)
+                    hidden[h + j] += d * g[row + j];
+            }
+        }
+        for (int r = from; r < to; r++) {
+            if (active != null && !active[r]) continue;
+            int h = r * HIDDEN_DIM;
+            for (int j = 0; j < HIDDEN_DIM; j++)
+                hidden[h + j] = Math.max(0.0, hidden[h + j] + g[HIDDEN_BIASES + j]);
+        }
+
+        for (int i = 0; i < HIDDEN_DIM; i++) {
+            int row = OUTPUT_WEIGHTS + i * OUTPUT_DIM;
+            for (int r = from; r < to; r++) {
+                if (active != null && !active[r]) continue;
+                double d = hidden[r * HIDDEN_DIM + i];
+                if (d == 0.0) continue;
+                int o = r * OUTPUT_DIM;
+                for (int j = 0; j < OUTPUT_DIM; j++)
+                    outputs[o + j] += d * g[row + j];
             }
-            output[j] = Math.exp(sum + getOutputBiases(j));
         }
+        for (int r = from; r < to; r++) {
+            if (active != null && !active[r]) continue;
+            for (int j = 0; j < OUTPUT_DIM; j++)
+                outputs[r * OUTPUT_DIM + j] += g[OUTPUT_BIASES + j];
+            softmax(outputs, r * OUTPUT_DIM);
+        }
+    }
+
+    /*
+     * Turns the OUTPUT_DIM logits from offset on, biases included, into
+     * probabilities in place.
+     */
+    static void softmax(double[] output, int offset) {
+        for (int j = 0; j < OUTPUT_DIM; j++)
+            output[offset + j] = Math.exp(output[offset + j]);
 
         double sum = 0.0;
-        for (int i = 0; i < this.getOutputDim(); i++) {
-            sum += output[i];
+        for (int i = 0; i < OUTPUT_DIM; i++) {
+            sum += output[offset + i];
         }
 
         if (sum == 0) throw new ArithmeticException("Division by zero!");
-        for (int i = 0; i < this.getOutputDim(); i++) {
-            output[i] /= sum;
+        for (int i = 0; i < OUTPUT_DIM; i++) {
+            output[offset + i] /= sum;
         }
-
-        return output;
     }
 
+    /*
+     * The returned array is reused by the next call, so one network must not
+     * play several games at the same time.
+     */
     @Override
     public double[] nextMove(double[] currentState) {
-        return forward(currentState);
+        return forward(currentState, hiddenScratch, outputScratch);
     }
 
     @Override
@@ -1,41 +1,289 @@
 package nn;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.random.RandomGenerator;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 
+import main.Telemetry;
+
 import static main.PlayAiController.logger;
 
-public class AiGeneticEvolution {
+/*
+ * With several workers a run owns a ForkJoinPool, which close() shuts down.
+ */
+public class AiGeneticEvolution implements AutoCloseable {
     private static final int POPULATION_SIZE = 100;
     private static final int MAX_GENERATIONS = 1000;
     private static final double MUTATION_RATE = 0.1;
     private static final double CROSSOVER_RATE = 0.8;
     private static final int TOURNAMENT_SIZE = 5;
+    private static final int ELITE_COUNT = 2;
+    private static final int FITNESS_CACHE_SIZE = 10 * POPULATION_SIZE;
+    private static final int RACING_INITIAL_SEEDS = 2;
+    private static final double RACING_CONFIDENCE = 1.96;
+    private static final int DEFAULT_WORKERS = Runtime.getRuntime().availableProcessors();
     private int seedBoard;
-    private Random random;
+    private long evolutionSeed;
+    private int workers;
+    private int maxTicks;
+    private RacingEvaluator racing;
+    private int racingSeeds;
+    private Path checkpointPath;
+    private int checkpointInterval;
+    private ForkJoinPool pool;
+    private RemoteEvaluator remote;
+    private RandomStreams streams;
+    private SplittableRandom random;
+    private int generation;
+    private int steadyStateChildren;
+    private int anchorInterval;
+    private FitnessCache fitnessCache = new FitnessCache(FITNESS_CACHE_SIZE);
     private AiFeedForwardController[] population = new AiFeedForwardController[POPULATION_SIZE];
     private AiFeedForwardController bestNetWork;
 
     public AiGeneticEvolution(int seedBoard) {
-        this.seedBoard = seedBoard;
+        this(seedBoard, DEFAULT_WORKERS);
+    }
+
+    /*
+     * Breeding always runs on the calling thread with random streams derived
+     * from the evolution seed, seedBoard unless given, only the Board episodes are
+     * spread over the workers. A run is therefore the same for a given seed
+     * whatever the number of workers.
+     */
+    public AiGeneticEvolution(int seedBoard, int workers) {
+        this(seedBoard, workers, Integer.MAX_VALUE);
+    }
+
+    /*
+     * Every episode of the run, including those of the first population, ends
+     * after maxTicks ticks.
+     */
+    public AiGeneticEvolution(int seedBoard, int workers, int maxTicks) {
+        this(seedBoard, seedBoard, workers, maxTicks);
+    }
+
+    /*
+     * Runs with the same seedBoard and different evolution seeds play the same
+     * games but breed different populations.
+     */
+    public AiGeneticEvolution(int seedBoard, long evolutionSeed, int workers, int maxTicks) {
+        this(seedBoard, evolutionSeed, workers, maxTicks, true);
+    }
+
+    /*
+     * Plays the Board episodes on the workers of remote; selection and breeding
+     * stay in this process.
+     */
+    public AiGeneticEvolution(int seedBoard, long evolutionSeed, int maxTicks, RemoteEvaluator remote) {
+        this(seedBoard, evolutionSeed, 1, maxTicks, false);
+        this.remote = remote;
         initializePopulation();
     }
 
+    private AiGeneticEvolution(int seedBoard, long evolutionSeed, int workers, int maxTicks, boolean initialize) {
+        if (workers < 1) throw new IllegalArgumentException("At least one worker is required: " + workers);
+        if (maxTicks < 1) throw new IllegalArgumentException("The tick budget must be positive: " + maxTicks);
+        this.seedBoard = seedBoard;
+        this.evolutionSeed = evolutionSeed;
+        this.streams = new RandomStreams(evolutionSeed);
+        this.workers = workers;
+        this.maxTicks = maxTicks;
+        if (workers > 1) this.pool = new ForkJoinPool(workers);
+        if (!initialize) return;
+        try {
+            initializePopulation();
+        } catch (RuntimeException | Error e) {
+            close();
+            throw e;
+        }
+    }
+
+    /*
+     * Continues the run saved in the checkpoint: the following generations are
+     * the same as if the run had never stopped.
+     */
+    public static AiGeneticEvolution resume(Checkpoint checkpoint, int workers) {
+        if (checkpoint.getPopulation().length != POPULATION_SIZE)
+            throw new IllegalArgumentException("The checkpoint holds " + checkpoint.getPopulation().length
+                    + " networks instead of a population of " + POPULATION_SIZE);
+        AiGeneticEvolution evolution = new AiGeneticEvolution(checkpoint.getSeedBoard(), checkpoint.getEvolutionSeed(), workers,
+                checkpoint.getMaxTicks(), false);
+        evolution.generation = checkpoint.getGeneration();
+        if (checkpoint.getRacingSeeds() > 0) evolution.createRacing(checkpoint.getRacingSeeds());
+        evolution.population = checkpoint.getPopulation().clone();
+        evolution.bestNetWork = checkpoint.getBestNetwork();
+        if (checkpoint.getAnchorInterval() > 0) evolution.setSeedChains(checkpoint.getAnchorInterval());
+        logger.log(Level.INFO, "Resumed at generation {0}, best network: {1} -> fitness {2}",
+                new Object[]{evolution.generation, evolution.bestNetWork, evolution.bestNetWork.getFitness()});
+        return evolution;
+    }
+
+    public static AiGeneticEvolution resume(Path checkpoint, int workers) throws IOException {
+        return resume(Checkpoint.read(checkpoint), workers);
+    }
+
+    /*
+     * Continues the run saved in the checkpoint with its episodes played on the
+     * workers of remote, as the same run would have gone on locally.
+     */
+    public static AiGeneticEvolution resume(Checkpoint checkpoint, RemoteEvaluator remote) {
+        AiGeneticEvolution evolution = resume(checkpoint, 1);
+        evolution.remote = remote;
+        return evolution;
+    }
+
+    public Checkpoint checkpoint() {
+        return new Checkpoint(seedBoard, evolutionSeed, maxTicks, generation, racingSeeds, anchorInterval, population.clone(), bestNetWork);
+    }
+
+    /*
+     * Writes a checkpoint to path after every interval generations. A failed
+     * write is logged and the run goes on.
+     */
+    public void setCheckpointing(Path path, int interval) {
+        if (interval < 1) throw new IllegalArgumentException("The checkpoint interval must be positive: " + interval);
+        this.checkpointPath = path;
+        this.checkpointInterval = interval;
+    }
+
+    public int getWorkers() {
+        return workers;
+    }
+
+    public int getMaxTicks() {
+        return maxTicks;
+    }
+
+    /*
+     * Scores every network on up to seedCount board seeds, the first being
+     * seedBoard, with a RacingEvaluator instead of on seedBoard alone. The
+     * current population is scored again right away so that all fitnesses
+     * compare.
+     */
+    public void setRacing(int seedCount) {
+        createRacing(seedCount);
+
+        evaluate(population);
+        Arrays.sort(population);
+        bestNetWork = population[0];
+        logger.log(Level.INFO, "Best network over {0} seeds: {1} -> fitness {2}", new Object[]{seedCount, bestNetWork, bestNetWork.getFitness()});
+    }
+
+    private void createRacing(int seedCount) {
+        if (seedCount < 1) throw new IllegalArgumentException("At least one seed is required: " + seedCount);
+        racing = new RacingEvaluator(racingSeeds(seedBoard, seedCount), RACING_INITIAL_SEEDS, RACING_CONFIDENCE, maxTicks, fitnessCache);
+        racingSeeds = seedCount;
+    }
+
+    /*
+     * The board seeds a run on seedBoard races on, seedBoard first.
+     */
+    static int[] racingSeeds(int seedBoard, int seedCount) {
+        int[] seeds = new int[seedCount];
+        seeds[0] = seedBoard;
+        Random seedRandom = new Random(~(long) seedBoard);
+        for (int i = 1; i < seedCount; i++)
+            seeds[i] = seedRandom.nextInt();
+        return seeds;
+    }
+
+    public RacingEvaluator getRacing() {
+        return racing;
+    }
+
+    /*
+     * With a positive interval every child gets a SeedChain. The chains start
+     * from the current population, anchored right away, and are anchored
+     * again on the population every interval generations, so that they never
+     * go back more than interval generations. Checkpointing at the same
+     * interval saves the anchors that decoding the chains needs. A checkpoint
+     * keeps the interval, and a run resumed from it anchors its chains on the
+     * saved population. 0 turns the chains off, which is the default.
+     */
+    public void setSeedChains(int anchorInterval) {
+        if (anchorInterval < 0) throw new IllegalArgumentException("The anchor interval cannot be negative: " + anchorInterval);
+        this.anchorInterval = anchorInterval;
+        if (anchorInterval > 0) anchorSeedChains();
+    }
+
+    public int getSeedChainInterval() {
+        return anchorInterval;
+    }
+
+    private void anchorSeedChains() {
+        for (AiFeedForwardController network : population)
+            network.setSeedChain(SeedChain.anchor(network.getGenome()));
+    }
+
+    private void anchorIfDue() {
+        if (anchorInterval > 0 && generation % anchorInterval == 0) anchorSeedChains();
+    }
+
     private void initializePopulation() {
+        random = streams.stream(RandomStreams.Stream.POPULATION, 0);
         for (int i = 0; i < POPULATION_SIZE; i++) {
             AiFeedForwardController network = new AiFeedForwardController();
-            network.initializeWeightsAndBiases();
-            network.calculateAndSetFitness(seedBoard);
+            network.initializeWeightsAndBiases(RandomStreams.genome(random.nextLong()));
             population[i] = network;
         }
+        evaluate(population);
         Arrays.sort(population);
         bestNetWork = population[0];
         logger.log(Level.INFO, "First best network: {0} -> fitness {1}", new Object[]{bestNetWork, bestNetWork.getFitness()});
     }
 
+    public FitnessCache getFitnessCache() {
+        return fitnessCache;
+    }
+
+    /*
+     * Genomes already played on seedBoard take their fitness from the cache;
+     * the others are played, in parallel when there are several workers or on
+     * the remote workers.
+     */
+    private void evaluate(AiFeedForwardController[] networks) {
+        if (racing != null && remote != null) {
+            racing.evaluate(networks, remote);
+            return;
+        }
+        if (racing != null) {
+            racing.evaluate(networks, pool);
+            return;
+        }
+
+        AiFeedForwardController[] unknown = Arrays.stream(networks)
+                .filter(network -> !fitnessCache.lookup(network, seedBoard))
+                .toArray(AiFeedForwardController[]::new);
+
+        if (remote != null) {
+            remote.evaluate(unknown, seedBoard, maxTicks);
+        } else if (pool == null) {
+            for (AiFeedForwardController network : unknown)
+                network.calculateAndSetFitness(seedBoard, maxTicks);
+        } else {
+            pool.submit(() -> Arrays.stream(unknown).parallel()
+                    .forEach(network -> network.calculateAndSetFitness(seedBoard, maxTicks))).join();
+        }
+
+        for (AiFeedForwardController network : unknown)
+            fitnessCache.store(network, seedBoard);
+    }
+
     private void updateBestNetwork(AiFeedForwardController currentNetwork) {
         if (currentNetwork.compareTo(bestNetWork) < 0) {
             bestNetWork = currentNetwork;
@@ -45,100 +293,249 @@ public class AiGeneticEvolution {
 
     public AiFeedForwardController train() {
 
-        for (int generation = 0; generation < MAX_GENERATIONS; generation++) {
-            random = new Random();
-            logger.log(Level.INFO, "-> Generation {0} with random {1}", new Object[]{generation, random});
-
-            AiFeedForwardController[] newPopulation = new AiFeedForwardController[POPULATION_SIZE];
-            for (int pop = 0; pop < POPULATION_SIZE; pop++) {
-                AiFeedForwardController parent1 = selectParent(population);
-                AiFeedForwardController parent2 = selectParent(population);
-                AiFeedForwardController child = crossover(parent1, parent2);
-                mutate(child);
-                child.calculateAndSetFitness(seedBoard);
-                newPopulation[pop] = child;
-                updateBestNetwork(child);
-            }
-            population = newPopulation;
-        }
+        while (generation < MAX_GENERATIONS)
+            nextGeneration();
 
         logger.log(Level.INFO, "Global best network: {0} -> fitness {1}", new Object[]{bestNetWork, bestNetWork.getFitness()});
         return bestNetWork;
     }
 
-    private AiFeedForwardController selectParent(AiFeedForwardController[] population) {
-        ArrayList<AiFeedForwardController> tournament = new ArrayList<>();
-        for (int i = 0; i < TOURNAMENT_SIZE; i++)
-            tournament.add(population[random.nextInt(POPULATION_SIZE)]);
+    public void nextGeneration() {
+        random = streams.stream(RandomStreams.Stream.GENERATION, generation);
+        logger.log(Level.INFO, "-> Generation {0}", generation);
 
-        Collections.sort(tournament);
-        return tournament.get(0);
+        AiFeedForwardController[] newPopulation = new AiFeedForwardController[POPULATION_SIZE];
+        AiFeedForwardController[] ranked = population.clone();
+        Arrays.sort(ranked);
+        System.arraycopy(ranked, 0, newPopulation, 0, ELITE_COUNT);
+        for (int pop = ELITE_COUNT; pop < POPULATION_SIZE; pop++) {
+            long start = Telemetry.start();
+            AiFeedForwardController parent1 = selectParent(population);
+            AiFeedForwardController parent2 = selectParent(population);
+            Telemetry.stop(Telemetry.Phase.SELECT, start);
+
+            start = Telemetry.start();
+            newPopulation[pop] = breed(parent1, parent2);
+            Telemetry.stop(Telemetry.Phase.BREED, start);
+        }
+        evaluate(newPopulation);
+        for (AiFeedForwardController child : newPopulation)
+            updateBestNetwork(child);
+        population = newPopulation;
+        logger.log(Level.INFO, "Fitness cache: {0} hits, {1} misses", new Object[]{fitnessCache.getHits(), fitnessCache.getMisses()});
+        generation++;
+        Telemetry.generation(generation, bestNetWork.getFitness());
+        anchorIfDue();
+        checkpointIfDue();
     }
 
-    private AiFeedForwardController crossover(AiFeedForwardController parent1, AiFeedForwardController parent2) {
+    /*
+     * Steady-state evolution: each worker in turn breeds one child from
+     * tournament-selected parents, plays it, and puts it in place of the
+     * weakest member of the population if it is fitter. There is no generation
+     * barrier, so a long episode only holds up its own worker. Every
+     * POPULATION_SIZE children count as a generation for checkpointing. With
+     * remote workers there is one loop per remote thread, each waiting on its
+     * own child, so that every remote thread has a child to play.
+     *
+     * Which members the parents are drawn from depends on the order in which
+     * the children come back, so with several workers a run is not
+     * reproducible. Racing needs whole generations and is not supported.
+     */
+    public AiFeedForwardController trainSteadyState(int children) {
+        if (racing != null) throw new IllegalStateException("Racing does not apply to steady-state evolution");
+        random = streams.stream(RandomStreams.Stream.GENERATION, generation);
+        AtomicInteger remaining = new AtomicInteger(children);
 
-        AiFeedForwardController child = new AiFeedForwardController();
+        Runnable worker = () -> {
+            while (remaining.getAndDecrement() > 0) {
+                AiFeedForwardController child;
+                synchronized (this) {
+                    long start = Telemetry.start();
+                    AiFeedForwardController parent1 = selectParent(population);
+                    AiFeedForwardController parent2 = selectParent(population);
+                    Telemetry.stop(Telemetry.Phase.SELECT, start);
 
-        crossoverInputWeights(child, parent1, parent2);
-        crossoverHiddenBiasesAndOutputWeights(child, parent1, parent2);
-        crossoverOutputBiases(child, parent1, parent2);
+                    start = Telemetry.start();
+                    child = breed(parent1, parent2);
+                    Telemetry.stop(Telemetry.Phase.BREED, start);
+                }
+                if (!fitnessCache.lookup(child, seedBoard)) {
+                    play(child);
+                    fitnessCache.store(child, seedBoard);
+                }
+                replaceWeakest(child);
+            }
+        };
+        if (remote != null) {
+            ExecutorService loops = Executors.newFixedThreadPool(remote.getThreads());
+            try {
+                List<Future<?>> tasks = new ArrayList<>();
+                for (int w = 0; w < remote.getThreads(); w++)
+                    tasks.add(loops.submit(worker));
+                for (Future<?> task : tasks)
+                    task.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for the remote workers", e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+                throw new IllegalStateException("A steady-state loop failed", e.getCause());
+            } finally {
+                loops.shutdownNow();
+            }
+        } else if (pool == null) {
+            worker.run();
+        } else {
+            List<ForkJoinTask<?>> tasks = new ArrayList<>();
+            for (int w = 0; w < workers; w++)
+                tasks.add(pool.submit(worker));
+            tasks.forEach(ForkJoinTask::join);
+        }
 
-        return child;
+        logger.log(Level.INFO, "Global best network: {0} -> fitness {1}", new Object[]{bestNetWork, bestNetWork.getFitness()});
+        return bestNetWork;
     }
 
-    private void crossoverInputWeights(AiFeedForwardController child, AiFeedForwardController parent1, AiFeedForwardController parent2) {
-        for (int i = 0; i < child.getInputDim(); i++) {
-            for (int j = 0; j < child.getHiddenDim(); j++) {
-                if (random.nextDouble() < CROSSOVER_RATE) child.setInputWeights(i, j, parent1.getInputWeights(i, j));
-                else child.setInputWeights(i, j, parent2.getInputWeights(i, j));
-            }
+    private void play(AiFeedForwardController child) {
+        if (remote == null) child.calculateAndSetFitness(seedBoard, maxTicks);
+        else remote.evaluate(new AiFeedForwardController[]{child}, seedBoard, maxTicks);
+    }
+
+    private int weakest() {
+        int weakest = 0;
+        for (int i = 1; i < population.length; i++)
+            if (population[i].compareTo(population[weakest]) > 0) weakest = i;
+        return weakest;
+    }
+
+    private synchronized void replaceWeakest(AiFeedForwardController child) {
+        int weakest = weakest();
+        if (child.compareTo(population[weakest]) < 0) {
+            population[weakest] = child;
+            updateBestNetwork(child);
+        }
+        if (++steadyStateChildren % POPULATION_SIZE == 0) {
+            generation++;
+            logger.log(Level.INFO, "-> Steady-state generation {0}, weakest fitness {1}",
+                    new Object[]{generation, population[weakest()].getFitness()});
+            Telemetry.generation(generation, bestNetWork.getFitness());
+            anchorIfDue();
+            checkpointIfDue();
         }
     }
 
-    private void crossoverHiddenBiasesAndOutputWeights(AiFeedForwardController child, AiFeedForwardController parent1, AiFeedForwardController parent2) {
-        for (int i = 0; i < child.getHiddenDim(); i++) {
-            if (random.nextDouble() < CROSSOVER_RATE) child.setHiddenBiases(i, parent1.getHiddenBiases(i));
-            else child.setHiddenBiases(i, parent2.getHiddenBiases(i));
-            for (int j = 0; j < child.getOutputDim(); j++) {
-                if (random.nextDouble() < CROSSOVER_RATE) child.setOutputWeights(i, j, parent1.getOutputWeights(i, j));
-                else child.setOutputWeights(i, j, parent2.getOutputWeights(i, j));
+    private void checkpointIfDue() {
+        if (checkpointPath != null && generation % checkpointInterval == 0) {
+            try {
+                checkpoint().write(checkpointPath);
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "Could not write checkpoint " + checkpointPath, e);
             }
         }
     }
 
-    private void crossoverOutputBiases(AiFeedForwardController child, AiFeedForwardController parent1, AiFeedForwardController parent2) {
-        for (int i = 0; i < child.getOutputDim(); i++) {
-            if (random.nextDouble() < CROSSOVER_RATE) child.setOutputBiases(i, parent1.getOutputBiases(i));
-            else child.setOutputBiases(i, parent2.getOutputBiases(i));
+    /*
+     * Shuts down the worker pool; the run cannot be continued afterwards.
+     */
+    @Override
+    public void close() {
+        if (pool != null) pool.shutdown();
+    }
+
+    public int getGeneration() {
+        return generation;
+    }
+
+    public AiFeedForwardController getBestNetwork() {
+        return bestNetWork;
+    }
+
+    /*
+     * Copies of the count fittest networks of the current population, fittest
+     * first.
+     */
+    public List<AiFeedForwardController> getTopNetworks(int count) {
+        AiFeedForwardController[] ranked = population.clone();
+        Arrays.sort(ranked);
+        List<AiFeedForwardController> top = new ArrayList<>();
+        for (int i = 0; i < Math.min(count, ranked.length); i++)
+            top.add(copy(ranked[i]));
+        return top;
+    }
+
+    /*
+     * Replaces the weakest members of the population with copies of the
+     * migrants, which keep the fitness they were given elsewhere. The migrants
+     * must come from a run with the same seedBoard and evaluation settings.
+     */
+    public void acceptMigrants(List<AiFeedForwardController> migrants) {
+        Integer[] order = new Integer[population.length];
+        for (int i = 0; i < order.length; i++)
+            order[i] = i;
+        Arrays.sort(order, (i, j) -> population[j].compareTo(population[i]));
+
+        for (int m = 0; m < Math.min(migrants.size(), order.length); m++) {
+            AiFeedForwardController migrant = copy(migrants.get(m));
+            population[order[m]] = migrant;
+            updateBestNetwork(migrant);
         }
     }
 
-    private void mutate(AiFeedForwardController child) {
-        mutateInputWeights(child);
-        mutateHiddenBiasesAndOutputWeights(child);
-        mutateOutputBiases(child);
+    private static AiFeedForwardController copy(AiFeedForwardController network) {
+        AiFeedForwardController copy = new AiFeedForwardController(network.getGenome().clone());
+        copy.setFitness(network.getFitness());
+        copy.setSeedChain(network.getSeedChain());
+        return copy;
     }
 
-    private void mutateInputWeights(AiFeedForwardController child) {
-        for (int i = 0; i < child.getInputDim(); i++)
-            for (int j = 0; j < child.getHiddenDim(); j++)
-                if (random.nextDouble() < MUTATION_RATE)
-                    child.setInputWeights(i, j, child.getInputWeights(i, j) + random.nextGaussian() * 0.1);
+    /*
+     * Crossover followed by mutation, driven by a seed drawn from the current
+     * generation's stream. The child is not evaluated. It gets a SeedChain
+     * when both parents have one.
+     */
+    public AiFeedForwardController breed(AiFeedForwardController parent1, AiFeedForwardController parent2) {
+        long seed = random.nextLong();
+        AiFeedForwardController child = new AiFeedForwardController(breedGenome(parent1.getGenome(), parent2.getGenome(), seed));
+        if (parent1.getSeedChain() != null && parent2.getSeedChain() != null)
+            child.setSeedChain(SeedChain.bred(parent1.getSeedChain(), parent2.getSeedChain(), seed));
+        return child;
     }
 
-    private void mutateHiddenBiasesAndOutputWeights(AiFeedForwardController child) {
-        for (int i = 0; i < child.getHiddenDim(); i++) {
-            if (random.nextDouble() < MUTATION_RATE)
-                child.setHiddenBiases(i, child.getHiddenBiases(i) + random.nextGaussian() * 0.1);
-            for (int j = 0; j < child.getOutputDim(); j++)
-                if (random.nextDouble() < MUTATION_RATE)
-                    child.setOutputWeights(i, j, child.getOutputWeights(i, j) + random.nextGaussian() * 0.1);
+    /*
+     * The child genome is a function of the parents and the seed only, which is
+     * what lets a SeedChain rebuild it.
+     */
+    static double[] breedGenome(double[] parent1, double[] parent2, long seed) {
+        RandomGenerator random = RandomStreams.genome(seed);
+        double[] child = crossover(parent1, parent2, random);
+        mutate(child, random);
+        return child;
+    }
+
+    private AiFeedForwardController selectParent(AiFeedForwardController[] population) {
+        ArrayList<AiFeedForwardController> tournament = new ArrayList<>();
+        for (int i = 0; i < TOURNAMENT_SIZE; i++)
+            tournament.add(population[random.nextInt(POPULATION_SIZE)]);
+
+        Collections.sort(tournament);
+        return tournament.get(0);
+    }
+
+    private static double[] crossover(double[] genome1, double[] genome2, RandomGenerator random) {
+        double[] child = new double[AiFeedForwardController.GENOME_SIZE];
+
+        for (int k = 0; k < child.length; k++) {
+            if (random.nextDouble() < CROSSOVER_RATE) child[k] = genome1[k];
+            else child[k] = genome2[k];
         }
+
+        return child;
     }
 
-    private void mutateOutputBiases(AiFeedForwardController child) {
-        for (int i = 0; i < child.getOutputDim(); i++)
+    private static void mutate(double[] genome, RandomGenerator random) {
+        for (int k = 0; k < genome.length; k++)
             if (random.nextDouble() < MUTATION_RATE)
-                child.setOutputBiases(i, child.getOutputBiases(i) + random.nextGaussian() * 0.1);
+                genome[k] += random.nextGaussian() * 0.1;
     }
 }
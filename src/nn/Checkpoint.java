@@ -0,0 +1,174 @@
+package nn;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/*
+ * Everything needed to continue an AiGeneticEvolution run: its settings, the
+ * generation reached, the population with its fitnesses and the best network.
+ * The random stream of a generation is derived from the evolution seed and
+ * the generation number, so those two are the whole random state. Checkpoints
+ * written before version 3, when the streams were derived differently, would
+ * not resume exactly and are refused, as are those of versions 3 and 4, which
+ * held a pruning flag and no seed chain interval.
+ *
+ * On disk a checkpoint is a small header followed by the raw genomes, written
+ * through a FileChannel to a temporary file that then replaces the target, and
+ * read back through a memory mapping.
+ */
+public class Checkpoint {
+    private static final int MAGIC = 0x53494350;
+    private static final int VERSION = 5;
+    private static final int HEADER_BYTES = 9 * Integer.BYTES + Long.BYTES;
+
+    private final int seedBoard;
+    private final long evolutionSeed;
+    private final int maxTicks;
+    private final int generation;
+    private final int racingSeeds;
+    private final int anchorInterval;
+    private final AiFeedForwardController[] population;
+    private final AiFeedForwardController bestNetwork;
+
+    public Checkpoint(int seedBoard, long evolutionSeed, int maxTicks, int generation, int racingSeeds, int anchorInterval,
+                      AiFeedForwardController[] population, AiFeedForwardController bestNetwork) {
+        this.seedBoard = seedBoard;
+        this.evolutionSeed = evolutionSeed;
+        this.maxTicks = maxTicks;
+        this.generation = generation;
+        this.racingSeeds = racingSeeds;
+        this.anchorInterval = anchorInterval;
+        this.population = population;
+        this.bestNetwork = bestNetwork;
+    }
+
+    public int getSeedBoard() {
+        return seedBoard;
+    }
+
+    public long getEvolutionSeed() {
+        return evolutionSeed;
+    }
+
+    public int getMaxTicks() {
+        return maxTicks;
+    }
+
+    public int getGeneration() {
+        return generation;
+    }
+
+    /*
+     * The number of racing seeds, 0 when the run does not race.
+     */
+    public int getRacingSeeds() {
+        return racingSeeds;
+    }
+
+    /*
+     * The seed chain anchor interval, 0 when the run has no seed chains. The
+     * chains themselves are not saved: a resumed run anchors new ones on the
+     * saved population.
+     */
+    public int getAnchorInterval() {
+        return anchorInterval;
+    }
+
+    public AiFeedForwardController[] getPopulation() {
+        return population;
+    }
+
+    public AiFeedForwardController getBestNetwork() {
+        return bestNetwork;
+    }
+
+    public void write(Path path) throws IOException {
+        int networkBytes = (1 + AiFeedForwardController.GENOME_SIZE) * Double.BYTES;
+        ByteBuffer buffer = ByteBuffer.allocateDirect(HEADER_BYTES + (population.length + 1) * networkBytes);
+
+        buffer.putInt(MAGIC)
+                .putInt(VERSION)
+                .putInt(seedBoard)
+                .putLong(evolutionSeed)
+                .putInt(maxTicks)
+                .putInt(generation)
+                .putInt(racingSeeds)
+                .putInt(anchorInterval)
+                .putInt(population.length)
+                .putInt(AiFeedForwardController.GENOME_SIZE);
+        for (AiFeedForwardController network : population)
+            putNetwork(buffer, network);
+        putNetwork(buffer, bestNetwork);
+        buffer.flip();
+
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (buffer.hasRemaining())
+                channel.write(buffer);
+            channel.force(false);
+        }
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public static Checkpoint read(Path path) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        if (buffer.remaining() < 2 * Integer.BYTES || buffer.getInt() != MAGIC)
+            throw new IOException(path + " is not a population checkpoint");
+        int version = buffer.getInt();
+        if (version != VERSION)
+            throw new IOException("Unsupported checkpoint version " + version + " in " + path + ", expected " + VERSION);
+        if (buffer.remaining() < HEADER_BYTES - 2 * Integer.BYTES)
+            throw new IOException("Truncated checkpoint " + path);
+
+        int seedBoard = buffer.getInt();
+        long evolutionSeed = buffer.getLong();
+        int maxTicks = buffer.getInt();
+        int generation = buffer.getInt();
+        int racingSeeds = buffer.getInt();
+        int anchorInterval = buffer.getInt();
+        int populationSize = buffer.getInt();
+        int genomeSize = buffer.getInt();
+        if (genomeSize != AiFeedForwardController.GENOME_SIZE)
+            throw new IOException("Checkpoint genomes have " + genomeSize + " weights instead of " + AiFeedForwardController.GENOME_SIZE);
+        if (buffer.remaining() != (long) (populationSize + 1) * (1 + genomeSize) * Double.BYTES)
+            throw new IOException("Truncated checkpoint " + path);
+
+        AiFeedForwardController[] population = new AiFeedForwardController[populationSize];
+        for (int i = 0; i < populationSize; i++)
+            population[i] = getNetwork(buffer);
+        AiFeedForwardController bestNetwork = getNetwork(buffer);
+
+        return new Checkpoint(seedBoard, evolutionSeed, maxTicks, generation, racingSeeds, anchorInterval, population, bestNetwork);
+    }
+
+    private static void putNetwork(ByteBuffer buffer, AiFeedForwardController network) {
+        buffer.putDouble(network.getFitness());
+        DoubleBuffer weights = buffer.asDoubleBuffer();
+        weights.put(network.getGenome());
+        buffer.position(buffer.position() + weights.position() * Double.BYTES);
+    }
+
+    private static AiFeedForwardController getNetwork(ByteBuffer buffer) {
+        double fitness = buffer.getDouble();
+        double[] genome = new double[AiFeedForwardController.GENOME_SIZE];
+        DoubleBuffer weights = buffer.asDoubleBuffer();
+        weights.get(genome);
+        buffer.position(buffer.position() + genome.length * Double.BYTES);
+
+        AiFeedForwardController network = new AiFeedForwardController(genome);
+        network.setFitness(fitness);
+        return network;
+    }
+}
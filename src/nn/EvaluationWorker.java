@@ -0,0 +1,113 @@
+package nn;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.ForkJoinPool;
+import java.util.logging.Level;
+import java.util.stream.IntStream;
+
+import static main.PlayAiController.logger;
+
+/*
+ * The worker side of a RemoteEvaluator: plays the episodes of every batch it
+ * receives on its own threads and answers with the fitnesses. Each connection
+ * is read by a thread of its own, which hands every batch to the pool as soon
+ * as it arrives, so the batches a coordinator keeps in flight are played at
+ * the same time and answered as they finish.
+ */
+public class EvaluationWorker {
+    private final ForkJoinPool pool;
+
+    public EvaluationWorker(int workers) {
+        if (workers < 1) throw new IllegalArgumentException("At least one worker is required: " + workers);
+        this.pool = new ForkJoinPool(workers);
+    }
+
+    /*
+     * Accepts coordinators until the server channel is closed.
+     */
+    public void serve(ServerSocketChannel server) throws IOException {
+        while (server.isOpen()) {
+            SocketChannel channel = server.accept();
+            Thread thread = new Thread(() -> handle(channel), "evaluation-" + channel.getRemoteAddress());
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    private void handle(SocketChannel channel) {
+        try (channel) {
+            ByteBuffer handshake = ByteBuffer.allocate(3 * Integer.BYTES);
+            RemoteEvaluator.readFully(channel, handshake);
+            handshake.flip();
+            int magic = handshake.getInt();
+            int version = handshake.getInt();
+            int genomeSize = handshake.getInt();
+            boolean accepted = magic == RemoteEvaluator.MAGIC && version == RemoteEvaluator.VERSION
+                    && genomeSize == AiFeedForwardController.GENOME_SIZE;
+            RemoteEvaluator.writeFully(channel, ByteBuffer.allocate(RemoteEvaluator.HANDSHAKE_REPLY_BYTES)
+                    .putInt(accepted ? RemoteEvaluator.MAGIC : 0)
+                    .putInt(pool.getParallelism())
+                    .flip());
+            if (!accepted) {
+                logger.log(Level.WARNING, "Refused coordinator with version {0} and genome size {1}", new Object[]{version, genomeSize});
+                return;
+            }
+
+            ByteBuffer header = ByteBuffer.allocate(RemoteEvaluator.REQUEST_HEADER_BYTES);
+            ByteBuffer genomes = ByteBuffer.allocateDirect(RemoteEvaluator.BATCH_SIZE * genomeSize * Double.BYTES);
+            while (true) {
+                header.clear();
+                if (channel.read(header) < 0) return;
+                RemoteEvaluator.readFully(channel, header);
+                header.flip();
+                int id = header.getInt();
+                int count = header.getInt();
+                int seed = header.getInt();
+                int maxTicks = header.getInt();
+                if (count < 0 || count > RemoteEvaluator.BATCH_SIZE) throw new IOException("Bad batch size " + count);
+
+                genomes.clear().limit(count * genomeSize * Double.BYTES);
+                RemoteEvaluator.readFully(channel, genomes);
+                genomes.flip();
+                AiFeedForwardController[] networks = new AiFeedForwardController[count];
+                for (int i = 0; i < count; i++) {
+                    double[] genome = new double[genomeSize];
+                    genomes.asDoubleBuffer().get(genome);
+                    genomes.position(genomes.position() + genomeSize * Double.BYTES);
+                    networks[i] = new AiFeedForwardController(genome);
+                }
+
+                pool.execute(() -> play(channel, id, networks, seed, maxTicks));
+            }
+        } catch (EOFException e) {
+            logger.log(Level.INFO, "Coordinator went away: {0}", e.getMessage());
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Evaluation connection failed", e);
+        }
+    }
+
+    /*
+     * Runs in the pool, so the episodes of the batch are spread over its threads.
+     */
+    private static void play(SocketChannel channel, int id, AiFeedForwardController[] networks, int seed, int maxTicks) {
+        int[] ticks = new int[networks.length];
+        IntStream.range(0, networks.length).parallel()
+                .forEach(i -> ticks[i] = networks[i].calculateAndSetFitness(seed, maxTicks));
+
+        ByteBuffer response = ByteBuffer.allocate(RemoteEvaluator.RESPONSE_HEADER_BYTES + networks.length * RemoteEvaluator.RESULT_BYTES);
+        response.putInt(id).putInt(networks.length);
+        for (int i = 0; i < networks.length; i++)
+            response.putDouble(networks[i].getFitness()).putInt(ticks[i]);
+        try {
+            synchronized (channel) {
+                RemoteEvaluator.writeFully(channel, response.flip());
+            }
+        } catch (IOException e) {
+            logger.log(Level.INFO, "Could not answer request {0}: {1}", new Object[]{id, e});
+        }
+    }
+}
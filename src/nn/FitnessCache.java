@@ -0,0 +1,85 @@
+package nn;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/*
+ * Bounded LRU map from (genome, board seed) to fitness. An episode is fully
+ * determined by the genome and the seed, so a genome that has already been
+ * played on a seed does not need another Board. Genomes are keyed by a 64-bit
+ * hash of their weights.
+ */
+public class FitnessCache {
+    private final int capacity;
+    private final Map<Key, Double> entries;
+    private long hits;
+    private long misses;
+
+    public FitnessCache(int capacity) {
+        if (capacity < 1) throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        this.capacity = capacity;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Double> eldest) {
+                return size() > FitnessCache.this.capacity;
+            }
+        };
+    }
+
+    /*
+     * Sets the fitness of the network and returns true when it is cached.
+     */
+    public boolean lookup(AiFeedForwardController network, long seed) {
+        Double fitness = get(network.getGenome(), seed);
+        if (fitness == null) return false;
+        network.setFitness(fitness);
+        return true;
+    }
+
+    public void store(AiFeedForwardController network, long seed) {
+        put(network.getGenome(), seed, network.getFitness());
+    }
+
+    /*
+     * The fitness of the genome on the seed, or null when it is not cached.
+     */
+    public synchronized Double get(double[] genome, long seed) {
+        Double fitness = entries.get(new Key(genomeHash(genome), seed));
+        if (fitness == null) misses++;
+        else hits++;
+        return fitness;
+    }
+
+    public synchronized void put(double[] genome, long seed, double fitness) {
+        entries.put(new Key(genomeHash(genome), seed), fitness);
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public static long genomeHash(double[] genome) {
+        long hash = 0xcbf29ce484222325L;
+        for (double weight : genome) {
+            hash ^= Double.doubleToLongBits(weight);
+            hash *= 0x100000001b3L;
+            hash ^= hash >>> 29;
+        }
+        return hash;
+    }
+
+    private record Key(long genomeHash, long seed) {
+    }
+}
@@ -0,0 +1,7 @@
+package nn;
+
+// The input layer of AiFeedForwardController.forward, so that its Vector API version can stay out of the default build.
+interface InputLayer {
+    // Adds every non-zero input times its genome row, starting at offset, to the hidden sums.
+    void accumulate(double[] input, double[] genome, int offset, double[] hidden);
+}
@@ -0,0 +1,131 @@
+package nn;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+
+import static main.PlayAiController.logger;
+
+/*
+ * Several AiGeneticEvolution populations (islands) bred independently on the
+ * same board seed, each from its own evolution seed. Every migrationInterval
+ * generations an island sends copies of its best networks to its neighbours
+ * and takes in whatever migrants have reached it, replacing its weakest
+ * members. Islands never wait for each other.
+ *
+ * The islands can be threads of one JVM, see train, or separate processes
+ * sharing a MappedMigrationChannel, see runIsland and main.RunIsland.
+ */
+public class IslandEvolution {
+
+    public enum Topology {
+        // Island i sends to island i + 1.
+        RING,
+        // Every island sends to every other one.
+        FULLY_CONNECTED
+    }
+
+    private final int seedBoard;
+    private final int islands;
+    private final int workersPerIsland;
+    private final int maxTicks;
+    private final int migrationInterval;
+    private final int migrants;
+    private final Topology topology;
+
+    public IslandEvolution(int seedBoard, int islands, int workersPerIsland, int maxTicks,
+                           int migrationInterval, int migrants, Topology topology) {
+        if (islands < 1) throw new IllegalArgumentException("At least one island is required: " + islands);
+        if (migrationInterval < 1) throw new IllegalArgumentException("The migration interval must be positive: " + migrationInterval);
+        this.seedBoard = seedBoard;
+        this.islands = islands;
+        this.workersPerIsland = workersPerIsland;
+        this.maxTicks = maxTicks;
+        this.migrationInterval = migrationInterval;
+        this.migrants = migrants;
+        this.topology = topology;
+    }
+
+    public int getIslands() {
+        return islands;
+    }
+
+    public int getMigrants() {
+        return migrants;
+    }
+
+    public long getEvolutionSeed(int island) {
+        return new RandomStreams(seedBoard).stream(RandomStreams.Stream.ISLAND, island).nextLong();
+    }
+
+    public List<Integer> getNeighbours(int island) {
+        List<Integer> neighbours = new ArrayList<>();
+        if (islands == 1) return neighbours;
+        if (topology == Topology.RING) {
+            neighbours.add((island + 1) % islands);
+        } else {
+            for (int other = 0; other < islands; other++)
+                if (other != island) neighbours.add(other);
+        }
+        return neighbours;
+    }
+
+    /*
+     * Breeds one island for the given number of generations and returns its
+     * final checkpoint, which holds its whole population.
+     */
+    public Checkpoint runIsland(int island, MigrationChannel channel, int generations) {
+        try (AiGeneticEvolution evolution = new AiGeneticEvolution(seedBoard, getEvolutionSeed(island), workersPerIsland, maxTicks)) {
+            List<Integer> neighbours = getNeighbours(island);
+
+            for (int generation = 1; generation <= generations; generation++) {
+                evolution.nextGeneration();
+                if (generation % migrationInterval == 0) {
+                    List<AiFeedForwardController> top = evolution.getTopNetworks(migrants);
+                    for (int neighbour : neighbours)
+                        channel.send(island, neighbour, top);
+                    List<AiFeedForwardController> arrived = channel.receive(island);
+                    evolution.acceptMigrants(arrived);
+                    logger.log(Level.INFO, "Island {0} sent {1} and received {2} migrants",
+                            new Object[]{island, top.size() * neighbours.size(), arrived.size()});
+                }
+            }
+            return evolution.checkpoint();
+        }
+    }
+
+    /*
+     * Runs every island on its own thread of this JVM and returns the best
+     * network found on any of them.
+     */
+    public AiFeedForwardController train(int generations) {
+        MigrationChannel channel = new LocalMigrationChannel(islands);
+        ExecutorService executor = Executors.newFixedThreadPool(islands);
+        try {
+            List<Future<Checkpoint>> results = new ArrayList<>();
+            for (int island = 0; island < islands; island++) {
+                int index = island;
+                results.add(executor.submit(() -> runIsland(index, channel, generations)));
+            }
+
+            AiFeedForwardController best = null;
+            for (Future<Checkpoint> result : results) {
+                AiFeedForwardController network = result.get().getBestNetwork();
+                if (best == null || network.compareTo(best) < 0) best = network;
+            }
+            logger.log(Level.INFO, "Best network over {0} islands: {1} -> fitness {2}", new Object[]{islands, best, best.getFitness()});
+            return best;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the islands", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("An island failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package nn;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/*
+ * Migration between islands of the same JVM through one lock-free queue per
+ * island.
+ */
+public class LocalMigrationChannel implements MigrationChannel {
+    private final List<ConcurrentLinkedQueue<AiFeedForwardController>> mailboxes = new ArrayList<>();
+
+    public LocalMigrationChannel(int islands) {
+        for (int i = 0; i < islands; i++)
+            mailboxes.add(new ConcurrentLinkedQueue<>());
+    }
+
+    @Override
+    public void send(int from, int to, List<AiFeedForwardController> migrants) {
+        mailboxes.get(to).addAll(migrants);
+    }
+
+    @Override
+    public List<AiFeedForwardController> receive(int island) {
+        List<AiFeedForwardController> migrants = new ArrayList<>();
+        AiFeedForwardController migrant;
+        while ((migrant = mailboxes.get(island).poll()) != null)
+            migrants.add(migrant);
+        return migrants;
+    }
+}
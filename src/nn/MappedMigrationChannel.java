@@ -0,0 +1,125 @@
+package nn;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Migration between island processes through a shared memory-mapped file.
+ * Every (from, to) pair of islands owns one slot holding the latest migrants
+ * sent, guarded by a sequence number that is odd while the slot is written:
+ * a reader that sees the number change under it skips the slot and gets the
+ * migrants on its next call. Each island must be run by a single process.
+ *
+ * The file starts with the seed, island count and capacity of the run it was
+ * made for, and is refused by a run with other settings. Whatever the slots
+ * hold when the file is opened counts as already received, so the migrants
+ * left by an earlier run are never taken in; a process that starts late may
+ * miss the first migrants its peers sent, not later ones.
+ */
+public class MappedMigrationChannel implements MigrationChannel {
+    private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+    private static final int NETWORK_BYTES = (1 + AiFeedForwardController.GENOME_SIZE) * Double.BYTES;
+    private static final int MAGIC = 0x5349494d;
+    private static final int HEADER_BYTES = 2 * Long.BYTES;
+    private static final int SLOT_HEADER_BYTES = 2 * Long.BYTES;
+
+    private final int islands;
+    private final int capacity;
+    private final long slotBytes;
+    private final MappedByteBuffer buffer;
+    private final long[][] seen;
+
+    /*
+     * Maps path, creating it if needed. Every process of a run must use the
+     * same seed, number of islands and capacity, the most migrants sent at
+     * once.
+     */
+    public MappedMigrationChannel(Path path, int seedBoard, int islands, int capacity) throws IOException {
+        this.islands = islands;
+        this.capacity = capacity;
+        this.slotBytes = SLOT_HEADER_BYTES + (long) capacity * NETWORK_BYTES;
+        this.seen = new long[islands][islands];
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES + slotBytes * islands * islands);
+        }
+        buffer.order(ByteOrder.nativeOrder());
+
+        // processes opening a new file at the same time write the same header
+        if (buffer.getInt(0) != MAGIC) {
+            buffer.putInt(Integer.BYTES, seedBoard);
+            buffer.putInt(2 * Integer.BYTES, islands);
+            buffer.putInt(3 * Integer.BYTES, capacity);
+            VarHandle.storeStoreFence();
+            buffer.putInt(0, MAGIC);
+        }
+        if (buffer.getInt(Integer.BYTES) != seedBoard || buffer.getInt(2 * Integer.BYTES) != islands
+                || buffer.getInt(3 * Integer.BYTES) != capacity)
+            throw new IOException(path + " is the migration file of a run with seed " + buffer.getInt(Integer.BYTES) + ", "
+                    + buffer.getInt(2 * Integer.BYTES) + " islands and " + buffer.getInt(3 * Integer.BYTES) + " migrants");
+
+        for (int from = 0; from < islands; from++)
+            for (int to = 0; to < islands; to++)
+                seen[from][to] = (long) LONGS.getAcquire(buffer, slot(from, to)) & ~1L;
+    }
+
+    private int slot(int from, int to) {
+        return (int) (HEADER_BYTES + (from * islands + to) * slotBytes);
+    }
+
+    @Override
+    public void send(int from, int to, List<AiFeedForwardController> migrants) {
+        int slot = slot(from, to);
+        int count = Math.min(migrants.size(), capacity);
+        long sequence = (long) LONGS.getVolatile(buffer, slot);
+
+        LONGS.setVolatile(buffer, slot, sequence + 1);
+        VarHandle.storeStoreFence();
+        buffer.putLong(slot + Long.BYTES, count);
+        for (int m = 0; m < count; m++) {
+            AiFeedForwardController migrant = migrants.get(m);
+            int offset = slot + SLOT_HEADER_BYTES + m * NETWORK_BYTES;
+            buffer.putDouble(offset, migrant.getFitness());
+            double[] genome = migrant.getGenome();
+            for (int k = 0; k < genome.length; k++)
+                buffer.putDouble(offset + (k + 1) * Double.BYTES, genome[k]);
+        }
+        LONGS.setRelease(buffer, slot, sequence + 2);
+    }
+
+    @Override
+    public List<AiFeedForwardController> receive(int island) {
+        List<AiFeedForwardController> migrants = new ArrayList<>();
+        for (int from = 0; from < islands; from++) {
+            if (from == island) continue;
+            int slot = slot(from, island);
+            long sequence = (long) LONGS.getAcquire(buffer, slot);
+            if ((sequence & 1) != 0 || sequence == seen[from][island]) continue;
+
+            List<AiFeedForwardController> read = new ArrayList<>();
+            int count = (int) Math.min(buffer.getLong(slot + Long.BYTES), capacity);
+            for (int m = 0; m < count; m++) {
+                int offset = slot + SLOT_HEADER_BYTES + m * NETWORK_BYTES;
+                double[] genome = new double[AiFeedForwardController.GENOME_SIZE];
+                for (int k = 0; k < genome.length; k++)
+                    genome[k] = buffer.getDouble(offset + (k + 1) * Double.BYTES);
+                AiFeedForwardController migrant = new AiFeedForwardController(genome);
+                migrant.setFitness(buffer.getDouble(offset));
+                read.add(migrant);
+            }
+
+            VarHandle.loadLoadFence();
+            if ((long) LONGS.getVolatile(buffer, slot) != sequence) continue;
+            seen[from][island] = sequence;
+            migrants.addAll(read);
+        }
+        return migrants;
+    }
+}
@@ -0,0 +1,20 @@
+package nn;
+
+import java.util.List;
+
+//The MigrationChannel interface carries migrants between the islands of an IslandEvolution.
+
+public interface MigrationChannel {
+
+    /*
+     * Hands copies of the migrants over to island to. Must not block on the
+     * receiving island.
+     */
+    public void send(int from, int to, List<AiFeedForwardController> migrants);
+
+    /*
+     * The migrants that reached island since its previous call, possibly none.
+     */
+    public List<AiFeedForwardController> receive(int island);
+
+}
@@ -0,0 +1,156 @@
+package nn;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.net.URI;
+import java.util.List;
+
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+
+import controllers.GameController;
+
+import static nn.AiFeedForwardController.HIDDEN_DIM;
+import static nn.AiFeedForwardController.INPUT_DIM;
+import static nn.AiFeedForwardController.OUTPUT_DIM;
+
+/*
+ * Turns a trained network into a class of its own whose nextMove has every
+ * weight as a constant, the loops unrolled and the zero (or pruned) weights
+ * left out, so that the JIT sees straight-line arithmetic on constants. The
+ * class is written as Java source, compiled in memory with the system Java
+ * compiler and defined as a hidden class, which is unloaded with its last
+ * instance.
+ *
+ * Each input gets a method of its own that adds its terms to the hidden
+ * sums, called only when the input is not zero as forward() does: a single
+ * method holding the whole input layer would be too large for the JIT to
+ * compile. The terms are added in forward()'s order.
+ */
+public final class NetworkCompiler {
+    private static final String CLASS_NAME = "CompiledNetwork";
+
+    private NetworkCompiler() {
+    }
+
+    /*
+     * Whether this runtime has a Java compiler, which a bare JRE does not.
+     */
+    public static boolean isAvailable() {
+        return ToolProvider.getSystemJavaCompiler() != null;
+    }
+
+    public static GameController compile(AiFeedForwardController network) {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) throw new IllegalStateException("No Java compiler in this runtime");
+
+        byte[] bytes = compileSource(compiler, generateSource(network));
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup().defineHiddenClass(bytes, true);
+            return (GameController) lookup.findConstructor(lookup.lookupClass(), MethodType.methodType(void.class)).invoke();
+        } catch (Throwable e) {
+            throw new IllegalStateException("Could not load the compiled network", e);
+        }
+    }
+
+    static String generateSource(AiFeedForwardController network) {
+        StringBuilder source = new StringBuilder();
+        source.append("package nn;\n\n")
+                .append("final class ").append(CLASS_NAME).append(" implements controllers.GameController {\n")
+                .append("    private final double[] h = new double[").append(HIDDEN_DIM).append("];\n")
+                .append("    private final double[] output = new double[").append(OUTPUT_DIM).append("];\n\n")
+                .append("    public double[] nextMove(double[] x) {\n")
+                .append("        java.util.Arrays.fill(h, 0.0);\n");
+
+        for (int i = 0; i < INPUT_DIM; i++) {
+            if (isDead(network, i)) continue;
+            source.append("        if (x[").append(i).append("] != 0.0) x").append(i).append("(x[").append(i).append("], h);\n");
+        }
+        for (int j = 0; j < HIDDEN_DIM; j++)
+            source.append("        double h").append(j).append(" = Math.max(0.0, h[").append(j).append("] + ")
+                    .append(literal(network.getHiddenBiases(j))).append(");\n");
+
+        for (int k = 0; k < OUTPUT_DIM; k++) {
+            source.append("        output[").append(k).append("] = 0.0");
+            for (int j = 0; j < HIDDEN_DIM; j++)
+                term(source, "h" + j, network.getOutputWeights(j, k));
+            source.append("\n                + ").append(literal(network.getOutputBiases(k))).append(";\n");
+        }
+
+        source.append("        AiFeedForwardController.softmax(output, 0);\n")
+                .append("        return output;\n")
+                .append("    }\n");
+
+        for (int i = 0; i < INPUT_DIM; i++) {
+            if (isDead(network, i)) continue;
+            source.append("\n    private static void x").append(i).append("(double v, double[] h) {\n");
+            for (int j = 0; j < HIDDEN_DIM; j++) {
+                double weight = network.getInputWeights(i, j);
+                if (weight != 0.0)
+                    source.append("        h[").append(j).append("] += v * ").append(literal(weight)).append(";\n");
+            }
+            source.append("    }\n");
+        }
+        return source.append("}\n").toString();
+    }
+
+    private static boolean isDead(AiFeedForwardController network, int input) {
+        for (int j = 0; j < HIDDEN_DIM; j++)
+            if (network.getInputWeights(input, j) != 0.0) return false;
+        return true;
+    }
+
+    // A zero weight only ever adds a signed zero, which leaves a sum unchanged.
+    private static void term(StringBuilder source, String value, double weight) {
+        if (weight == 0.0) return;
+        source.append("\n                + ").append(value).append(" * ").append(literal(weight));
+    }
+
+    // Hexadecimal literals keep every bit of the weight.
+    private static String literal(double value) {
+        if (Double.isNaN(value)) return "Double.NaN";
+        if (Double.isInfinite(value)) return value > 0 ? "Double.POSITIVE_INFINITY" : "Double.NEGATIVE_INFINITY";
+        return "(" + Double.toHexString(value) + ")";
+    }
+
+    private static byte[] compileSource(JavaCompiler compiler, String source) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        JavaFileObject sourceFile = new SimpleJavaFileObject(URI.create("string:///nn/" + CLASS_NAME + ".java"), JavaFileObject.Kind.SOURCE) {
+            @Override
+            public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                return source;
+            }
+        };
+        JavaFileObject classFile = new SimpleJavaFileObject(URI.create("bytes:///nn/" + CLASS_NAME + ".class"), JavaFileObject.Kind.CLASS) {
+            @Override
+            public OutputStream openOutputStream() {
+                return bytes;
+            }
+        };
+
+        StringWriter diagnostics = new StringWriter();
+        JavaFileManager standard = compiler.getStandardFileManager(null, null, null);
+        try (JavaFileManager files = new ForwardingJavaFileManager<>(standard) {
+            @Override
+            public JavaFileObject getJavaFileForOutput(Location location, String className, JavaFileObject.Kind kind, FileObject sibling) {
+                return classFile;
+            }
+        }) {
+            List<String> options = List.of("-classpath", System.getProperty("java.class.path"), "-g:none");
+            if (!compiler.getTask(diagnostics, files, null, options, null, List.of(sourceFile)).call())
+                throw new IllegalStateException("Could not compile the network: " + diagnostics);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not compile the network", e);
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,239 @@
+package nn;
+
+import controllers.GameController;
+import space.EpisodeTrace;
+import space.Simulation;
+
+import static nn.AiFeedForwardController.HIDDEN_DIM;
+import static nn.AiFeedForwardController.INPUT_DIM;
+import static nn.AiFeedForwardController.OUTPUT_DIM;
+
+/*
+ * A trained AiFeedForwardController run with smaller numbers: float32 weights,
+ * or int8 weights with one scale per layer. Rows are laid out input-major as
+ * in the genome and zero inputs are skipped. In int8 the observation, whose
+ * values lie in [-1, 1], is quantized to int8 as well so that the input layer
+ * accumulates in ints; the small output layer runs on the float hidden values.
+ *
+ * The player only uses the argmax of the outputs and whether output 3 is
+ * above 0.5, so no softmax is computed: the argmax of the probabilities is
+ * the argmax of the logits, and output 3 is above 0.5 when exp(z3) exceeds the
+ * sum of the other exps. That is decided from the logits alone unless z3 is
+ * within log(3) of the largest other logit. The decision is returned as an
+ * output that the player turns into the same action.
+ *
+ * Rounding can change a decision near a tie; agreement() measures how often
+ * this controller decides like the network it was built from.
+ */
+public class QuantizedController implements GameController {
+    private static final int FIRE = 3;
+    private static final float LOG_3 = (float) Math.log(3);
+    private static final float INPUT_LEVELS = 127;
+
+    public enum Precision {
+        FLOAT32, INT8
+    }
+
+    private final Precision precision;
+
+    // FLOAT32 weights
+    private final float[] inputWeights;
+    private final float[] outputWeights;
+
+    // INT8 weights and the scale turning each layer back into floats
+    private final byte[] inputWeights8;
+    private final byte[] outputWeights8;
+    private final float inputScale;
+    private final float outputScale;
+
+    private final float[] hiddenBiases = new float[HIDDEN_DIM];
+    private final float[] outputBiases = new float[OUTPUT_DIM];
+
+    private final int[] hidden8 = new int[HIDDEN_DIM];
+    private final float[] hidden = new float[HIDDEN_DIM];
+    private final float[] logits = new float[OUTPUT_DIM];
+    private final double[] output = new double[OUTPUT_DIM];
+
+    public QuantizedController(AiFeedForwardController network, Precision precision) {
+        this.precision = precision;
+
+        double[] input = new double[INPUT_DIM * HIDDEN_DIM];
+        for (int i = 0; i < INPUT_DIM; i++)
+            for (int j = 0; j < HIDDEN_DIM; j++)
+                input[i * HIDDEN_DIM + j] = network.getInputWeights(i, j);
+        double[] output = new double[HIDDEN_DIM * OUTPUT_DIM];
+        for (int i = 0; i < HIDDEN_DIM; i++)
+            for (int j = 0; j < OUTPUT_DIM; j++)
+                output[i * OUTPUT_DIM + j] = network.getOutputWeights(i, j);
+        for (int j = 0; j < HIDDEN_DIM; j++)
+            hiddenBiases[j] = (float) network.getHiddenBiases(j);
+        for (int j = 0; j < OUTPUT_DIM; j++)
+            outputBiases[j] = (float) network.getOutputBiases(j);
+
+        if (precision == Precision.FLOAT32) {
+            inputWeights = toFloats(input);
+            outputWeights = toFloats(output);
+            inputWeights8 = null;
+            outputWeights8 = null;
+            inputScale = 1;
+            outputScale = 1;
+        } else {
+            inputScale = scale(input);
+            outputScale = scale(output);
+            inputWeights8 = toBytes(input, inputScale);
+            outputWeights8 = toBytes(output, outputScale);
+            inputWeights = null;
+            outputWeights = null;
+        }
+    }
+
+    private static float[] toFloats(double[] weights) {
+        float[] floats = new float[weights.length];
+        for (int k = 0; k < weights.length; k++)
+            floats[k] = (float) weights[k];
+        return floats;
+    }
+
+    // Symmetric: the largest weight in magnitude maps to 127.
+    private static float scale(double[] weights) {
+        double max = 0;
+        for (double weight : weights)
+            max = Math.max(max, Math.abs(weight));
+        return max == 0 ? 1 : (float) (max / 127);
+    }
+
+    private static byte[] toBytes(double[] weights, float scale) {
+        byte[] bytes = new byte[weights.length];
+        for (int k = 0; k < weights.length; k++)
+            bytes[k] = (byte) Math.max(-127, Math.min(127, Math.round(weights[k] / scale)));
+        return bytes;
+    }
+
+    public Precision getPrecision() {
+        return precision;
+    }
+
+    /*
+     * The bytes taken by the weights and biases.
+     */
+    public int getWeightBytes() {
+        int weights = (INPUT_DIM + OUTPUT_DIM) * HIDDEN_DIM;
+        int biases = (HIDDEN_DIM + OUTPUT_DIM) * Float.BYTES;
+        return precision == Precision.FLOAT32 ? weights * Float.BYTES + biases : weights + 2 * Float.BYTES + biases;
+    }
+
+    /*
+     * The action the player takes for the state, as EpisodeTrace.action
+     * encodes it.
+     */
+    public int decide(double[] state) {
+        if (precision == Precision.FLOAT32) logitsFloat32(state);
+        else logitsInt8(state);
+
+        int key = 0;
+        float max = logits[0];
+        for (int j = 1; j < OUTPUT_DIM; j++) {
+            if (max < logits[j]) {
+                key = j;
+                max = logits[j];
+            }
+        }
+        return key << 1 | (fires() ? 1 : 0);
+    }
+
+    private boolean fires() {
+        float z = logits[FIRE];
+        float maxOther = Float.NEGATIVE_INFINITY;
+        for (int j = 0; j < OUTPUT_DIM; j++)
+            if (j != FIRE) maxOther = Math.max(maxOther, logits[j]);
+
+        if (z <= maxOther) return false;
+        if (z > maxOther + LOG_3) return true;
+
+        double others = 0;
+        for (int j = 0; j < OUTPUT_DIM; j++)
+            if (j != FIRE) others += Math.exp(logits[j] - maxOther);
+        return Math.exp(z - maxOther) > others;
+    }
+
+    private void logitsFloat32(double[] state) {
+        float[] w = inputWeights;
+        for (int j = 0; j < HIDDEN_DIM; j++)
+            hidden[j] = 0;
+        for (int i = 0; i < INPUT_DIM; i++) {
+            float x = (float) state[i];
+            if (x == 0) continue;
+            int row = i * HIDDEN_DIM;
+            for (int j = 0; j < HIDDEN_DIM; j++)
+                hidden[j] += x * w[row + j];
+        }
+        for (int j = 0; j < HIDDEN_DIM; j++)
+            hidden[j] = Math.max(0, hidden[j] + hiddenBiases[j]);
+
+        float[] v = outputWeights;
+        for (int j = 0; j < OUTPUT_DIM; j++)
+            logits[j] = outputBiases[j];
+        for (int i = 0; i < HIDDEN_DIM; i++) {
+            float h = hidden[i];
+            if (h == 0) continue;
+            int row = i * OUTPUT_DIM;
+            for (int j = 0; j < OUTPUT_DIM; j++)
+                logits[j] += h * v[row + j];
+        }
+    }
+
+    private void logitsInt8(double[] state) {
+        byte[] w = inputWeights8;
+        int[] sums = hidden8;
+        for (int j = 0; j < HIDDEN_DIM; j++)
+            sums[j] = 0;
+        for (int i = 0; i < INPUT_DIM; i++) {
+            int x = (int) Math.max(-127, Math.min(127, Math.round(state[i] * INPUT_LEVELS)));
+            if (x == 0) continue;
+            int row = i * HIDDEN_DIM;
+            for (int j = 0; j < HIDDEN_DIM; j++)
+                sums[j] += x * w[row + j];
+        }
+        float scale = inputScale / INPUT_LEVELS;
+        for (int j = 0; j < HIDDEN_DIM; j++)
+            hidden[j] = Math.max(0, sums[j] * scale + hiddenBiases[j]);
+
+        byte[] v = outputWeights8;
+        for (int j = 0; j < OUTPUT_DIM; j++)
+            logits[j] = 0;
+        for (int i = 0; i < HIDDEN_DIM; i++) {
+            float h = hidden[i];
+            if (h == 0) continue;
+            int row = i * OUTPUT_DIM;
+            for (int j = 0; j < OUTPUT_DIM; j++)
+                logits[j] += h * v[row + j];
+        }
+        for (int j = 0; j < OUTPUT_DIM; j++)
+            logits[j] = logits[j] * outputScale + outputBiases[j];
+    }
+
+    /*
+     * The returned array is reused by the next call.
+     */
+    @Override
+    public double[] nextMove(double[] currentState) {
+        return EpisodeTrace.output(decide(currentState), output);
+    }
+
+    /*
+     * The share of the ticks of reference's game on the seed in which this
+     * controller would take the same action as reference.
+     */
+    public double agreement(AiFeedForwardController reference, int seed) {
+        int[] counts = new int[2];
+        Simulation simulation = new Simulation(state -> {
+            double[] move = reference.nextMove(state);
+            if (decide(state) == EpisodeTrace.action(move)) counts[0]++;
+            counts[1]++;
+            return move;
+        });
+        simulation.setSeed(seed);
+        simulation.run();
+        return counts[1] == 0 ? 1 : (double) counts[0] / counts[1];
+    }
+}
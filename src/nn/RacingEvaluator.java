@@ -0,0 +1,193 @@
+package nn;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/*
+ * Scores networks on several board seeds without playing every network on
+ * every seed. All networks start on a few seeds; after each round the better
+ * half by mean fitness goes on, together with any network whose confidence
+ * interval still reaches the weakest of that half, and the number of seeds is
+ * doubled (successive halving). The fitness of a network is its mean over the
+ * seeds it played.
+ *
+ * Seeds are played in the same order for every network, so networks are
+ * always compared on the same games, and the result does not depend on the
+ * number of workers, local or remote.
+ */
+public class RacingEvaluator {
+    private final int[] seeds;
+    private final int initialSeeds;
+    private final double z;
+    private final int maxTicks;
+    private final FitnessCache cache;
+    private long episodes;
+
+    /*
+     * z is the width of the confidence intervals in standard errors, e.g. 1.96
+     * for 95%. cache may be null.
+     */
+    public RacingEvaluator(int[] seeds, int initialSeeds, double z, int maxTicks, FitnessCache cache) {
+        if (seeds.length == 0) throw new IllegalArgumentException("At least one seed is required");
+        if (initialSeeds < 1) throw new IllegalArgumentException("At least one initial seed is required: " + initialSeeds);
+        this.seeds = seeds.clone();
+        this.initialSeeds = Math.min(initialSeeds, seeds.length);
+        this.z = z;
+        this.maxTicks = maxTicks;
+        this.cache = cache;
+    }
+
+    public int getSeedCount() {
+        return seeds.length;
+    }
+
+    /*
+     * The number of episodes actually played, cache hits excluded.
+     */
+    public synchronized long getEpisodes() {
+        return episodes;
+    }
+
+    private synchronized void countEpisode() {
+        episodes++;
+    }
+
+    /*
+     * Sets the fitness of every network. pool may be null to play on the
+     * calling thread; a network never plays two seeds at the same time.
+     */
+    public void evaluate(AiFeedForwardController[] networks, ForkJoinPool pool) {
+        evaluate(networks, pool, null);
+    }
+
+    /*
+     * Sets the fitness of every network with the episodes of each round played
+     * on the workers of remote.
+     */
+    public void evaluate(AiFeedForwardController[] networks, RemoteEvaluator remote) {
+        evaluate(networks, null, remote);
+    }
+
+    private void evaluate(AiFeedForwardController[] networks, ForkJoinPool pool, RemoteEvaluator remote) {
+        RunningStats[] stats = new RunningStats[networks.length];
+        List<Integer> alive = new ArrayList<>();
+        for (int i = 0; i < networks.length; i++) {
+            stats[i] = new RunningStats();
+            alive.add(i);
+        }
+
+        int played = 0;
+        int target = initialSeeds;
+        while (true) {
+            int from = played;
+            int to = target;
+            if (remote != null) {
+                play(networks, stats, alive, from, to, remote);
+            } else if (pool == null) {
+                for (int i : alive)
+                    play(networks[i], stats[i], from, to);
+            } else {
+                pool.submit(() -> alive.parallelStream().forEach(i -> play(networks[i], stats[i], from, to))).join();
+            }
+            played = target;
+
+            if (played == seeds.length || alive.size() <= 1) break;
+
+            alive.sort(Comparator.comparingDouble((Integer i) -> stats[i].mean()).reversed());
+            int keep = (alive.size() + 1) / 2;
+            double cutoff = stats[alive.get(keep - 1)].lower(z);
+            List<Integer> survivors = new ArrayList<>(alive.subList(0, keep));
+            for (int i : alive.subList(keep, alive.size()))
+                if (stats[i].upper(z) >= cutoff) survivors.add(i);
+            alive.clear();
+            alive.addAll(survivors);
+
+            target = Math.min(2 * played, seeds.length);
+        }
+
+        for (int i = 0; i < networks.length; i++)
+            networks[i].setFitness(stats[i].mean());
+    }
+
+    private void play(AiFeedForwardController network, RunningStats stats, int from, int to) {
+        for (int s = from; s < to; s++) {
+            Double fitness = cache == null ? null : cache.get(network.getGenome(), seeds[s]);
+            if (fitness == null) {
+                network.calculateAndSetFitness(seeds[s], maxTicks);
+                fitness = network.getFitness();
+                countEpisode();
+                if (cache != null) cache.put(network.getGenome(), seeds[s], fitness);
+            }
+            stats.add(fitness);
+        }
+    }
+
+    /*
+     * Plays the seeds from to to of every alive network in one call to remote,
+     * each episode on a copy of the network so that several can be in flight.
+     */
+    private void play(AiFeedForwardController[] networks, RunningStats[] stats, List<Integer> alive, int from, int to, RemoteEvaluator remote) {
+        Double[][] fitnesses = new Double[alive.size()][to - from];
+        List<AiFeedForwardController> copies = new ArrayList<>();
+        List<Integer> copySeeds = new ArrayList<>();
+        for (int s = from; s < to; s++) {
+            for (int k = 0; k < alive.size(); k++) {
+                double[] genome = networks[alive.get(k)].getGenome();
+                fitnesses[k][s - from] = cache == null ? null : cache.get(genome, seeds[s]);
+                if (fitnesses[k][s - from] != null) continue;
+                copies.add(new AiFeedForwardController(genome));
+                copySeeds.add(seeds[s]);
+            }
+        }
+
+        remote.evaluate(copies.toArray(new AiFeedForwardController[0]), copySeeds.stream().mapToInt(Integer::intValue).toArray(), maxTicks);
+
+        int c = 0;
+        for (int s = from; s < to; s++) {
+            for (int k = 0; k < alive.size(); k++) {
+                if (fitnesses[k][s - from] != null) continue;
+                fitnesses[k][s - from] = copies.get(c++).getFitness();
+                countEpisode();
+                if (cache != null) cache.put(networks[alive.get(k)].getGenome(), seeds[s], fitnesses[k][s - from]);
+            }
+        }
+        for (int k = 0; k < alive.size(); k++)
+            for (int s = from; s < to; s++)
+                stats[alive.get(k)].add(fitnesses[k][s - from]);
+    }
+
+    /*
+     * Welford's streaming mean and variance.
+     */
+    private static class RunningStats {
+        private int n;
+        private double mean;
+        private double m2;
+
+        void add(double x) {
+            n++;
+            double delta = x - mean;
+            mean += delta / n;
+            m2 += delta * (x - mean);
+        }
+
+        double mean() {
+            return mean;
+        }
+
+        double halfWidth(double z) {
+            if (n < 2) return Double.POSITIVE_INFINITY;
+            return z * Math.sqrt(m2 / (n - 1) / n);
+        }
+
+        double lower(double z) {
+            return mean - halfWidth(z);
+        }
+
+        double upper(double z) {
+            return mean + halfWidth(z);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package nn;
+
+import java.util.SplittableRandom;
+
+/*
+ * The random numbers of an evolution run, all derived from one master seed.
+ * Each purpose and index (a generation, an island) gets a stream of its own,
+ * computed from the seed rather than drawn in sequence, so streams can be
+ * created in any order and on any thread and the run stays the same.
+ *
+ * Streams are SplittableRandoms, which carry no synchronization, so no two
+ * threads ever contend on one. The games themselves keep their board seed and
+ * the generator of java.util.Random, which is part of what a seed means.
+ */
+public final class RandomStreams {
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    public enum Stream {
+        // The weight seeds of the first population.
+        POPULATION,
+        // Parent selection and breeding seeds of a generation.
+        GENERATION,
+        // The evolution seeds of the islands of an IslandEvolution.
+        ISLAND
+    }
+
+    private final long masterSeed;
+
+    public RandomStreams(long masterSeed) {
+        this.masterSeed = masterSeed;
+    }
+
+    public long getMasterSeed() {
+        return masterSeed;
+    }
+
+    public SplittableRandom stream(Stream stream, long index) {
+        return new SplittableRandom(mix(mix(masterSeed + (stream.ordinal() + 1) * GOLDEN_GAMMA) + index * GOLDEN_GAMMA));
+    }
+
+    /*
+     * The stream that initializes or breeds one genome, a function of its seed
+     * only so that a SeedChain can replay it.
+     */
+    public static SplittableRandom genome(long seed) {
+        return new SplittableRandom(seed);
+    }
+
+    // The finalizer of SplittableRandom, which spreads nearby inputs apart.
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,333 @@
+package nn;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.logging.Level;
+
+import main.Telemetry;
+
+import static main.PlayAiController.logger;
+
+/*
+ * Plays Board episodes on EvaluationWorker processes instead of in this JVM.
+ * The networks of a call are cut into batches that go to whichever worker has
+ * the most room: every worker tells its thread count in the handshake and is
+ * kept busy with up to GENOMES_PER_THREAD genomes per thread in flight, so it
+ * never waits for the coordinator between batches and faster workers take
+ * more. A thread per connection reads the answers, which come back in any
+ * order. evaluate may be called from several threads at once. When a worker
+ * goes away, the batches it still had are sent again to the others; only
+ * when none is left do the calls fail. Every episode played remotely counts
+ * in the Telemetry of this process.
+ *
+ * The protocol is binary over TCP or Unix domain sockets. After a handshake of
+ * magic, version and genome size, answered by magic and thread count, the
+ * coordinator sends batches of (request id, count, seed, tick budget, raw
+ * genomes) and the worker answers each one with (request id, count) and a
+ * fitness and an episode length per genome.
+ */
+public class RemoteEvaluator implements Closeable {
+    static final int MAGIC = 0x53494557;
+    static final int VERSION = 4;
+    static final int HANDSHAKE_REPLY_BYTES = 2 * Integer.BYTES;
+    static final int REQUEST_HEADER_BYTES = 4 * Integer.BYTES;
+    static final int RESPONSE_HEADER_BYTES = 2 * Integer.BYTES;
+    static final int RESULT_BYTES = Double.BYTES + Integer.BYTES;
+    static final int BATCH_SIZE = 4;
+    private static final int GENOMES_PER_THREAD = 2;
+
+    private final List<Connection> connections = new ArrayList<>();
+    // guarded by this, as are the inFlight, pending and dead of every connection
+    private int nextRequest;
+    private IOException failure;
+    private boolean closed;
+
+    private static final class Connection {
+        final SocketChannel channel;
+        final int threads;
+        final ByteBuffer request = ByteBuffer.allocateDirect(REQUEST_HEADER_BYTES + BATCH_SIZE * AiFeedForwardController.GENOME_SIZE * Double.BYTES);
+        final Map<Integer, Batch> pending = new HashMap<>();
+        int inFlight;
+        boolean dead;
+
+        Connection(SocketChannel channel, int threads) {
+            this.channel = channel;
+            this.threads = threads;
+        }
+
+        boolean fits(int count) {
+            return !dead && (inFlight == 0 || inFlight + count <= threads * GENOMES_PER_THREAD);
+        }
+    }
+
+    private static final class Batch {
+        final AiFeedForwardController[] networks;
+        final int first;
+        final int count;
+        final int seed;
+        final int maxTicks;
+        final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        Batch(AiFeedForwardController[] networks, int first, int count, int seed, int maxTicks) {
+            this.networks = networks;
+            this.first = first;
+            this.count = count;
+            this.seed = seed;
+            this.maxTicks = maxTicks;
+        }
+    }
+
+    public RemoteEvaluator(List<SocketAddress> workers) throws IOException {
+        if (workers.isEmpty()) throw new IllegalArgumentException("At least one worker is required");
+        try {
+            for (SocketAddress address : workers)
+                connections.add(connect(address));
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+        for (Connection connection : connections) {
+            Thread reader = new Thread(() -> read(connection), "remote-evaluator-" + connection.channel.getRemoteAddress());
+            reader.setDaemon(true);
+            reader.start();
+        }
+    }
+
+    private static Connection connect(SocketAddress address) throws IOException {
+        SocketChannel channel = SocketChannel.open(address);
+        ByteBuffer handshake = ByteBuffer.allocate(3 * Integer.BYTES)
+                .putInt(MAGIC)
+                .putInt(VERSION)
+                .putInt(AiFeedForwardController.GENOME_SIZE)
+                .flip();
+        writeFully(channel, handshake);
+
+        ByteBuffer reply = ByteBuffer.allocate(HANDSHAKE_REPLY_BYTES);
+        readFully(channel, reply);
+        reply.flip();
+        int magic = reply.getInt();
+        int threads = reply.getInt();
+        if (magic != MAGIC || threads < 1) {
+            channel.close();
+            throw new IOException("Worker " + address + " refused the connection");
+        }
+        return new Connection(channel, threads);
+    }
+
+    /*
+     * "unix:<path>" for a Unix domain socket, "<host>:<port>" otherwise.
+     */
+    public static SocketAddress parseAddress(String address) {
+        if (address.startsWith("unix:")) return UnixDomainSocketAddress.of(address.substring("unix:".length()));
+        int colon = address.lastIndexOf(':');
+        if (colon < 0) throw new IllegalArgumentException("Expected <host>:<port> or unix:<path>: " + address);
+        return new InetSocketAddress(address.substring(0, colon), Integer.parseInt(address.substring(colon + 1)));
+    }
+
+    public int getWorkers() {
+        return connections.size();
+    }
+
+    /*
+     * The number of threads of all the workers together.
+     */
+    public int getThreads() {
+        int threads = 0;
+        for (Connection connection : connections)
+            threads += connection.threads;
+        return threads;
+    }
+
+    /*
+     * Sets the fitness of every network as calculateAndSetFitness(seed,
+     * maxTicks) would.
+     */
+    public void evaluate(AiFeedForwardController[] networks, int seed, int maxTicks) {
+        int[] seeds = new int[networks.length];
+        Arrays.fill(seeds, seed);
+        evaluate(networks, seeds, maxTicks);
+    }
+
+    /*
+     * Sets the fitness of every network on the seed at the same index. A
+     * batch holds networks next to each other with the same seed.
+     */
+    public void evaluate(AiFeedForwardController[] networks, int[] seeds, int maxTicks) {
+        if (seeds.length != networks.length) throw new IllegalArgumentException("Expected a seed per network");
+        List<CompletableFuture<Void>> batches = new ArrayList<>();
+        for (int first = 0; first < networks.length; ) {
+            int count = 1;
+            while (count < BATCH_SIZE && first + count < networks.length && seeds[first + count] == seeds[first])
+                count++;
+            Batch batch = new Batch(networks, first, count, seeds[first], maxTicks);
+            send(batch);
+            batches.add(batch.done);
+            first += count;
+        }
+        try {
+            CompletableFuture.allOf(batches.toArray(new CompletableFuture<?>[0])).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException)
+                throw new UncheckedIOException("A worker failed", (IOException) e.getCause());
+            throw new IllegalStateException("A worker failed", e.getCause());
+        }
+    }
+
+    /*
+     * Sends the batch to the live connection with the most room, waiting for
+     * one to have room.
+     */
+    private void send(Batch batch) {
+        Connection connection;
+        int id;
+        synchronized (this) {
+            while (true) {
+                if (failure != null) throw new UncheckedIOException("A worker failed", failure);
+                connection = null;
+                for (Connection candidate : connections)
+                    if (candidate.fits(batch.count) && (connection == null || candidate.inFlight * connection.threads < connection.inFlight * candidate.threads))
+                        connection = candidate;
+                if (connection != null) break;
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while waiting for the workers", e);
+                }
+            }
+            id = nextRequest++;
+            connection.inFlight += batch.count;
+            connection.pending.put(id, batch);
+        }
+
+        IOException error = null;
+        synchronized (connection.request) {
+            ByteBuffer request = connection.request;
+            request.clear();
+            request.putInt(id)
+                    .putInt(batch.count)
+                    .putInt(batch.seed)
+                    .putInt(batch.maxTicks);
+            for (int i = batch.first; i < batch.first + batch.count; i++) {
+                request.asDoubleBuffer().put(batch.networks[i].getGenome());
+                request.position(request.position() + AiFeedForwardController.GENOME_SIZE * Double.BYTES);
+            }
+            try {
+                writeFully(connection.channel, request.flip());
+            } catch (IOException e) {
+                error = e;
+            }
+        }
+        if (error != null) fail(connection, error);
+    }
+
+    private void read(Connection connection) {
+        ByteBuffer header = ByteBuffer.allocate(RESPONSE_HEADER_BYTES);
+        ByteBuffer results = ByteBuffer.allocate(BATCH_SIZE * RESULT_BYTES);
+        try {
+            while (true) {
+                header.clear();
+                readFully(connection.channel, header);
+                header.flip();
+                int id = header.getInt();
+                int count = header.getInt();
+                if (count < 0 || count > BATCH_SIZE) throw new IOException("Bad batch size " + count);
+
+                results.clear().limit(count * RESULT_BYTES);
+                readFully(connection.channel, results);
+                results.flip();
+
+                Batch batch;
+                synchronized (this) {
+                    batch = connection.pending.remove(id);
+                }
+                if (batch == null || batch.count != count) throw new IOException("Unexpected answer to request " + id);
+                for (int i = batch.first; i < batch.first + count; i++) {
+                    double fitness = results.getDouble();
+                    batch.networks[i].setFitness(fitness);
+                    Telemetry.episode(results.getInt(), fitness);
+                }
+
+                synchronized (this) {
+                    connection.inFlight -= count;
+                    notifyAll();
+                }
+                batch.done.complete(null);
+            }
+        } catch (IOException e) {
+            fail(connection, e);
+        }
+    }
+
+    /*
+     * Gives up on the connection and sends the batches it still had to the
+     * other connections. Once no connection is left, those batches and every
+     * later call fail.
+     */
+    private void fail(Connection connection, IOException e) {
+        List<Batch> lost;
+        boolean alive = false;
+        synchronized (this) {
+            if (connection.dead || closed) return;
+            connection.dead = true;
+            lost = new ArrayList<>(connection.pending.values());
+            connection.pending.clear();
+            connection.inFlight = 0;
+            for (Connection other : connections)
+                alive |= !other.dead;
+            if (!alive) failure = e;
+            notifyAll();
+        }
+        logger.log(Level.WARNING, "Lost a worker with " + lost.size() + " batches in flight", e);
+        try {
+            connection.channel.close();
+        } catch (IOException ignored) {
+            // the connection is given up anyway
+        }
+
+        for (Batch batch : lost) {
+            if (!alive) {
+                batch.done.completeExceptionally(e);
+                continue;
+            }
+            try {
+                send(batch);
+            } catch (UncheckedIOException resendFailure) {
+                batch.done.completeExceptionally(resendFailure.getCause());
+            }
+        }
+    }
+
+    static void readFully(SocketChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining())
+            if (channel.read(buffer) < 0) throw new EOFException("Connection closed by the other side");
+    }
+
+    static void writeFully(SocketChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            closed = true;
+        }
+        for (Connection connection : connections)
+            connection.channel.close();
+    }
+}
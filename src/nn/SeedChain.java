@@ -0,0 +1,338 @@
+package nn;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/*
+ * A genome told as the steps that produced it instead of its weights: either
+ * the seed its weights were initialized from, an anchor genome whose weights
+ * are at hand, or the two parent chains and the seed that drove their
+ * crossover and mutation. Every step is deterministic, so the weights can be
+ * rebuilt whenever they are needed.
+ *
+ * With crossover the chains of a population share their ancestors, so they
+ * form a graph that is encoded once for all the genomes shipped together: each
+ * step costs a few bytes whatever the size of the network. An anchor is
+ * encoded as the hash of its weights, which the decoding side must already
+ * hold, e.g. from a checkpoint. Anchoring a run every few generations keeps
+ * the graph, the encoding and the rebuilding cost from growing with the run.
+ * Rebuilt weights are kept in a process-wide LRU cache. Chains are equal when
+ * they tell the same steps, so a decoded chain finds the weights of the chain
+ * it was encoded from.
+ */
+public final class SeedChain {
+    private static final int MAGIC = 0x53434832;
+    private static final byte INITIAL = 0;
+    private static final byte BRED = 1;
+    private static final byte ANCHOR = 2;
+    private static final int CACHE_SIZE = 256;
+
+    private static final Map<SeedChain, double[]> cache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<SeedChain, double[]> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    private final SeedChain parent1;
+    private final SeedChain parent2;
+    private final long seed;
+    private final double[] anchor;
+    private final int depth;
+    private final int hash;
+
+    private SeedChain(SeedChain parent1, SeedChain parent2, long seed, double[] anchor) {
+        this.parent1 = parent1;
+        this.parent2 = parent2;
+        this.seed = seed;
+        this.anchor = anchor;
+        this.depth = parent1 == null ? 0 : Math.max(parent1.depth, parent2.depth) + 1;
+        int hash = 31 * Long.hashCode(seed) + (anchor != null ? ANCHOR : parent1 == null ? INITIAL : BRED);
+        if (parent1 != null) hash = 31 * (31 * hash + parent1.hash) + parent2.hash;
+        this.hash = hash;
+    }
+
+    public static SeedChain initial(long seed) {
+        return new SeedChain(null, null, seed, null);
+    }
+
+    /*
+     * A chain that starts from the given weights, which it keeps and which must
+     * not change afterwards. Its seed is the hash of the weights.
+     */
+    public static SeedChain anchor(double[] genome) {
+        if (genome.length != AiFeedForwardController.GENOME_SIZE)
+            throw new IllegalArgumentException("Genome of size " + genome.length + " instead of " + AiFeedForwardController.GENOME_SIZE);
+        return new SeedChain(null, null, FitnessCache.genomeHash(genome), genome);
+    }
+
+    public static SeedChain bred(SeedChain parent1, SeedChain parent2, long seed) {
+        if (parent1 == null || parent2 == null) throw new IllegalArgumentException("Both parents are required");
+        return new SeedChain(parent1, parent2, seed, null);
+    }
+
+    public boolean isInitial() {
+        return parent1 == null && anchor == null;
+    }
+
+    public boolean isAnchor() {
+        return anchor != null;
+    }
+
+    public SeedChain getParent1() {
+        return parent1;
+    }
+
+    public SeedChain getParent2() {
+        return parent2;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    /*
+     * The number of breeding steps on the longest path back to an initial seed.
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /*
+     * Compares the two graphs node by node, each pair of nodes once however
+     * many paths lead to it.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof SeedChain)) return false;
+
+        Map<SeedChain, Set<SeedChain>> compared = new IdentityHashMap<>();
+        Deque<SeedChain[]> pairs = new ArrayDeque<>();
+        pairs.push(new SeedChain[]{this, (SeedChain) o});
+        while (!pairs.isEmpty()) {
+            SeedChain[] pair = pairs.pop();
+            SeedChain a = pair[0];
+            SeedChain b = pair[1];
+            if (a == b || !compared.computeIfAbsent(a, k -> Collections.newSetFromMap(new IdentityHashMap<>())).add(b)) continue;
+            if (a.hash != b.hash || a.seed != b.seed || a.depth != b.depth || a.isAnchor() != b.isAnchor() || a.isInitial() != b.isInitial())
+                return false;
+            if (a.isAnchor() && !Arrays.equals(a.anchor, b.anchor)) return false;
+            if (a.parent1 != null) {
+                pairs.push(new SeedChain[]{a.parent1, b.parent1});
+                pairs.push(new SeedChain[]{a.parent2, b.parent2});
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    /*
+     * A new network with the rebuilt weights; its fitness is not set.
+     */
+    public AiFeedForwardController materialize() {
+        return materialize(List.of(this)).get(0);
+    }
+
+    /*
+     * Rebuilds several chains in one pass, so that the ancestors they share are
+     * only built once.
+     */
+    public static List<AiFeedForwardController> materialize(List<SeedChain> chains) {
+        Map<SeedChain, double[]> weights = build(chains);
+        List<AiFeedForwardController> networks = new ArrayList<>();
+        for (SeedChain chain : chains) {
+            AiFeedForwardController network = new AiFeedForwardController(weights.get(chain).clone());
+            network.setSeedChain(chain);
+            networks.add(network);
+        }
+        return networks;
+    }
+
+    /*
+     * Rebuilds the ancestors that are not cached in depth order, dropping the
+     * weights of each one as soon as its last child in the graph is built, so
+     * that only about a generation's worth of genomes is held at a time.
+     */
+    private static Map<SeedChain, double[]> build(List<SeedChain> targets) {
+        Map<SeedChain, double[]> known = new IdentityHashMap<>();
+        Map<SeedChain, Integer> children = new IdentityHashMap<>();
+        List<SeedChain> pending = new ArrayList<>();
+        Deque<SeedChain> stack = new ArrayDeque<>();
+        for (SeedChain target : targets) {
+            if (children.containsKey(target)) continue;
+            // Targets hold an extra reference so that they are never dropped.
+            children.put(target, 1);
+            stack.push(target);
+        }
+        while (!stack.isEmpty()) {
+            SeedChain chain = stack.pop();
+            double[] weights = chain.isAnchor() ? chain.anchor : cached(chain);
+            if (weights != null) {
+                known.put(chain, weights);
+                continue;
+            }
+            pending.add(chain);
+            if (chain.parent1 == null) continue;
+            for (SeedChain parent : new SeedChain[]{chain.parent1, chain.parent2}) {
+                Integer count = children.get(parent);
+                children.put(parent, count == null ? 1 : count + 1);
+                if (count == null) stack.push(parent);
+            }
+        }
+
+        pending.sort(Comparator.comparingInt(SeedChain::getDepth));
+        for (SeedChain chain : pending) {
+            double[] weights;
+            if (chain.isInitial()) {
+                AiFeedForwardController network = new AiFeedForwardController();
+                network.initializeWeightsAndBiases(RandomStreams.genome(chain.seed));
+                weights = network.getGenome();
+            } else {
+                weights = AiGeneticEvolution.breedGenome(known.get(chain.parent1), known.get(chain.parent2), chain.seed);
+                release(chain.parent1, known, children);
+                release(chain.parent2, known, children);
+            }
+            known.put(chain, weights);
+        }
+
+        synchronized (cache) {
+            for (SeedChain target : targets)
+                cache.put(target, known.get(target));
+        }
+        return known;
+    }
+
+    private static void release(SeedChain parent, Map<SeedChain, double[]> known, Map<SeedChain, Integer> children) {
+        int count = children.get(parent) - 1;
+        children.put(parent, count);
+        if (count == 0) known.remove(parent);
+    }
+
+    private static double[] cached(SeedChain chain) {
+        synchronized (cache) {
+            return cache.get(chain);
+        }
+    }
+
+    /*
+     * The chains and all their ancestors, each step written once.
+     */
+    public static byte[] encode(List<SeedChain> chains) {
+        List<SeedChain> nodes = new ArrayList<>();
+        Map<SeedChain, Integer> index = new IdentityHashMap<>();
+        Deque<SeedChain> stack = new ArrayDeque<>(chains);
+        while (!stack.isEmpty()) {
+            SeedChain chain = stack.pop();
+            if (index.containsKey(chain)) continue;
+            index.put(chain, -1);
+            nodes.add(chain);
+            if (chain.parent1 != null) {
+                stack.push(chain.parent1);
+                stack.push(chain.parent2);
+            }
+        }
+        nodes.sort(Comparator.comparingInt(SeedChain::getDepth));
+        for (int i = 0; i < nodes.size(); i++)
+            index.put(nodes.get(i), i);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            writeVarInt(out, nodes.size());
+            for (int i = 0; i < nodes.size(); i++) {
+                SeedChain chain = nodes.get(i);
+                out.writeByte(chain.isAnchor() ? ANCHOR : chain.isInitial() ? INITIAL : BRED);
+                out.writeLong(chain.seed);
+                if (chain.parent1 != null) {
+                    writeVarInt(out, i - index.get(chain.parent1));
+                    writeVarInt(out, i - index.get(chain.parent2));
+                }
+            }
+            writeVarInt(out, chains.size());
+            for (SeedChain chain : chains)
+                writeVarInt(out, index.get(chain));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    public static List<SeedChain> decode(byte[] encoded) throws IOException {
+        return decode(encoded, List.of());
+    }
+
+    /*
+     * Decodes chains whose anchors are among the given genomes.
+     */
+    public static List<SeedChain> decode(byte[] encoded, List<double[]> anchors) throws IOException {
+        Map<Long, double[]> known = new HashMap<>();
+        for (double[] genome : anchors)
+            known.put(FitnessCache.genomeHash(genome), genome);
+
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(encoded))) {
+            if (in.readInt() != MAGIC) throw new IOException("Not an encoded seed chain");
+            SeedChain[] nodes = new SeedChain[readVarInt(in)];
+            for (int i = 0; i < nodes.length; i++) {
+                byte op = in.readByte();
+                long seed = in.readLong();
+                if (op == INITIAL) {
+                    nodes[i] = initial(seed);
+                } else if (op == BRED) {
+                    SeedChain parent1 = nodes[i - readVarInt(in)];
+                    SeedChain parent2 = nodes[i - readVarInt(in)];
+                    nodes[i] = bred(parent1, parent2, seed);
+                } else if (op == ANCHOR) {
+                    double[] genome = known.get(seed);
+                    if (genome == null) throw new IOException("Unknown anchor genome " + Long.toHexString(seed));
+                    nodes[i] = anchor(genome);
+                } else {
+                    throw new IOException("Unknown seed chain step " + op);
+                }
+            }
+            List<SeedChain> chains = new ArrayList<>();
+            int count = readVarInt(in);
+            for (int i = 0; i < count; i++)
+                chains.add(nodes[readVarInt(in)]);
+            return chains;
+        }
+    }
+
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static int readVarInt(DataInputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new IOException("Malformed varint");
+    }
+}
@@ -0,0 +1,203 @@
+package nn;
+
+import java.util.Arrays;
+import java.util.logging.Level;
+
+import controllers.GameController;
+
+import static main.PlayAiController.logger;
+import static nn.AiFeedForwardController.HIDDEN_DIM;
+import static nn.AiFeedForwardController.INPUT_DIM;
+import static nn.AiFeedForwardController.OUTPUT_DIM;
+
+/*
+ * A trained AiFeedForwardController stored as compressed sparse rows: one row
+ * per input of each layer, holding the units that input feeds and the weights
+ * it feeds them with, the zero weights left out. A tick only visits the rows
+ * of the inputs that are not zero, which for most observations leaves out the
+ * empty bomb slots, and within a row only the weights that survived pruning.
+ * It plays like the dense network it was built from, see forward().
+ */
+public class SparseNetwork implements GameController {
+    private static final int PRUNING_LEVELS = 20;
+
+    // input layer rows, one per input
+    private final int[] inputRows;
+    private final byte[] inputUnits;
+    private final double[] inputWeights;
+
+    // output layer rows, one per hidden unit
+    private final int[] hiddenRows;
+    private final byte[] hiddenUnits;
+    private final double[] hiddenWeights;
+
+    private final double[] hiddenBiases = new double[HIDDEN_DIM];
+    private final double[] outputBiases = new double[OUTPUT_DIM];
+
+    private final double[] hidden = new double[HIDDEN_DIM];
+    private final double[] output = new double[OUTPUT_DIM];
+
+    public SparseNetwork(AiFeedForwardController network) {
+        int inputCount = 0;
+        for (int i = 0; i < INPUT_DIM; i++)
+            for (int j = 0; j < HIDDEN_DIM; j++)
+                if (network.getInputWeights(i, j) != 0.0) inputCount++;
+        inputRows = new int[INPUT_DIM + 1];
+        inputUnits = new byte[inputCount];
+        inputWeights = new double[inputCount];
+        int k = 0;
+        for (int i = 0; i < INPUT_DIM; i++) {
+            inputRows[i] = k;
+            for (int j = 0; j < HIDDEN_DIM; j++) {
+                double weight = network.getInputWeights(i, j);
+                if (weight == 0.0) continue;
+                inputUnits[k] = (byte) j;
+                inputWeights[k++] = weight;
+            }
+        }
+        inputRows[INPUT_DIM] = k;
+
+        int hiddenCount = 0;
+        for (int i = 0; i < HIDDEN_DIM; i++)
+            for (int j = 0; j < OUTPUT_DIM; j++)
+                if (network.getOutputWeights(i, j) != 0.0) hiddenCount++;
+        hiddenRows = new int[HIDDEN_DIM + 1];
+        hiddenUnits = new byte[hiddenCount];
+        hiddenWeights = new double[hiddenCount];
+        k = 0;
+        for (int i = 0; i < HIDDEN_DIM; i++) {
+            hiddenRows[i] = k;
+            for (int j = 0; j < OUTPUT_DIM; j++) {
+                double weight = network.getOutputWeights(i, j);
+                if (weight == 0.0) continue;
+                hiddenUnits[k] = (byte) j;
+                hiddenWeights[k++] = weight;
+            }
+        }
+        hiddenRows[HIDDEN_DIM] = k;
+
+        for (int j = 0; j < HIDDEN_DIM; j++)
+            hiddenBiases[j] = network.getHiddenBiases(j);
+        for (int j = 0; j < OUTPUT_DIM; j++)
+            outputBiases[j] = network.getOutputBiases(j);
+    }
+
+    /*
+     * A copy of the network whose weights smaller than threshold in magnitude
+     * are set to zero. Biases are kept; the copy has no fitness.
+     */
+    public static AiFeedForwardController prune(AiFeedForwardController network, double threshold) {
+        AiFeedForwardController pruned = new AiFeedForwardController(network.getGenome().clone());
+        for (int i = 0; i < INPUT_DIM; i++)
+            for (int j = 0; j < HIDDEN_DIM; j++)
+                if (Math.abs(pruned.getInputWeights(i, j)) < threshold) pruned.setInputWeights(i, j, 0.0);
+        for (int i = 0; i < HIDDEN_DIM; i++)
+            for (int j = 0; j < OUTPUT_DIM; j++)
+                if (Math.abs(pruned.getOutputWeights(i, j)) < threshold) pruned.setOutputWeights(i, j, 0.0);
+        return pruned;
+    }
+
+    /*
+     * Prunes the best network of the checkpoint on the objective its run was
+     * trained on: the mean fitness over the racing seeds, or on seedBoard
+     * alone, within the run's tick budget.
+     */
+    public static AiFeedForwardController prune(Checkpoint checkpoint, double tolerance) {
+        int[] seeds = checkpoint.getRacingSeeds() > 0
+                ? AiGeneticEvolution.racingSeeds(checkpoint.getSeedBoard(), checkpoint.getRacingSeeds())
+                : new int[]{checkpoint.getSeedBoard()};
+        return prune(checkpoint.getBestNetwork(), seeds, checkpoint.getMaxTicks(), tolerance);
+    }
+
+    /*
+     * Prunes the network at growing magnitude thresholds, each one removing
+     * another 1/PRUNING_LEVELS of the weights, and keeps the last pruned copy
+     * whose mean fitness over the seeds stays within tolerance of the
+     * network's own. The returned network has that mean fitness set.
+     */
+    public static AiFeedForwardController prune(AiFeedForwardController network, int[] seeds, int maxTicks, double tolerance) {
+        AiFeedForwardController best = new AiFeedForwardController(network.getGenome().clone());
+        double reference = meanFitness(best, seeds, maxTicks);
+
+        double[] magnitudes = new double[(INPUT_DIM + OUTPUT_DIM) * HIDDEN_DIM];
+        int k = 0;
+        for (int i = 0; i < INPUT_DIM; i++)
+            for (int j = 0; j < HIDDEN_DIM; j++)
+                magnitudes[k++] = Math.abs(network.getInputWeights(i, j));
+        for (int i = 0; i < HIDDEN_DIM; i++)
+            for (int j = 0; j < OUTPUT_DIM; j++)
+                magnitudes[k++] = Math.abs(network.getOutputWeights(i, j));
+        Arrays.sort(magnitudes);
+
+        for (int level = 1; level < PRUNING_LEVELS; level++) {
+            AiFeedForwardController candidate = prune(network, magnitudes[magnitudes.length * level / PRUNING_LEVELS]);
+            if (meanFitness(candidate, seeds, maxTicks) < reference - tolerance) break;
+            best = candidate;
+        }
+
+        logger.log(Level.INFO, "Pruned to {0} weights of {1}, fitness {2} instead of {3} over {4} seeds",
+                new Object[]{new SparseNetwork(best).getWeightCount(), magnitudes.length, best.getFitness(), reference, seeds.length});
+        return best;
+    }
+
+    private static double meanFitness(AiFeedForwardController network, int[] seeds, int maxTicks) {
+        double sum = 0.0;
+        for (int seed : seeds) {
+            network.calculateAndSetFitness(seed, maxTicks);
+            sum += network.getFitness();
+        }
+        network.setFitness(sum / seeds.length);
+        return network.getFitness();
+    }
+
+    /*
+     * The number of weights kept, biases excluded.
+     */
+    public int getWeightCount() {
+        return inputWeights.length + hiddenWeights.length;
+    }
+
+    /*
+     * The bytes taken by the rows, weights and biases.
+     */
+    public int getWeightBytes() {
+        int rows = (inputRows.length + hiddenRows.length) * Integer.BYTES;
+        int weights = getWeightCount() * (1 + Double.BYTES);
+        return rows + weights + (HIDDEN_DIM + OUTPUT_DIM) * Double.BYTES;
+    }
+
+    public double[] forward(double[] input) {
+        for (int j = 0; j < HIDDEN_DIM; j++)
+            hidden[j] = 0.0;
+        for (int i = 0; i < INPUT_DIM; i++) {
+            double d = input[i];
+            if (d == 0.0) continue;
+            for (int k = inputRows[i]; k < inputRows[i + 1]; k++)
+                hidden[inputUnits[k]] += d * inputWeights[k];
+        }
+        for (int j = 0; j < HIDDEN_DIM; j++)
+            hidden[j] = Math.max(0.0, hidden[j] + hiddenBiases[j]);
+
+        for (int j = 0; j < OUTPUT_DIM; j++)
+            output[j] = 0.0;
+        for (int i = 0; i < HIDDEN_DIM; i++) {
+            double h = hidden[i];
+            if (h == 0.0) continue;
+            for (int k = hiddenRows[i]; k < hiddenRows[i + 1]; k++)
+                output[hiddenUnits[k]] += h * hiddenWeights[k];
+        }
+
+        for (int j = 0; j < OUTPUT_DIM; j++)
+            output[j] += outputBiases[j];
+        AiFeedForwardController.softmax(output, 0);
+        return output;
+    }
+
+    /*
+     * The returned array is reused by the next call.
+     */
+    @Override
+    public double[] nextMove(double[] currentState) {
+        return forward(currentState);
+    }
+}
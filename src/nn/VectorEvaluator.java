@@ -0,0 +1,53 @@
+package nn;
+
+import space.Commons;
+import space.VectorEnv;
+
+/*
+ * Plays one network on many seeds in lockstep on a VectorEnv and runs the
+ * inference of each tick as one batch, instead of one forward() call per game
+ * and tick. The fitnesses are the same as calculateAndSetFitness gives.
+ *
+ * Only one network over many games batches: several networks share no
+ * weights to reuse. Even then the 23 KB of weights fit in L1, so the batch
+ * measured 0 to 15% slower than playing the seeds one after the other for 2
+ * to 32 seeds, and RacingEvaluator plays its seeds one by one.
+ */
+public class VectorEvaluator {
+    private final VectorEnv env;
+    private final double[] observations;
+    private final double[] hidden;
+    private final double[] outputs;
+
+    public VectorEvaluator(int size) {
+        this.env = new VectorEnv(size);
+        this.observations = new double[size * Commons.STATE_SIZE];
+        this.hidden = new double[size * AiFeedForwardController.HIDDEN_DIM];
+        this.outputs = new double[size * Commons.NUM_ACTIONS];
+    }
+
+    public int size() {
+        return env.size();
+    }
+
+    /*
+     * One network on one game per seed: every tick is a single matrix-matrix
+     * product over all running games.
+     */
+    public double[] evaluate(AiFeedForwardController network, long[] seeds) {
+        env.reset(seeds);
+        while (!env.isTerminal()) {
+            env.observe(observations);
+            network.forwardBatch(observations, hidden, outputs, 0, env.size(), env.getActive());
+            env.step(outputs);
+        }
+        return fitnesses();
+    }
+
+    private double[] fitnesses() {
+        double[] fitness = new double[env.size()];
+        for (int i = 0; i < fitness.length; i++)
+            fitness[i] = env.getFitness(i);
+        return fitness;
+    }
+}
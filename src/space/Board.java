@@ -10,56 +10,37 @@ import java.awt.Toolkit;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.image.BufferedImage;
-import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.List;
-import java.util.Random;
 
-import javax.swing.ImageIcon;
 import javax.swing.JPanel;
 import javax.swing.Timer;
 
 import controllers.GameController;
+import controllers.ReplayController;
 import space.sprite.Alien;
 import space.sprite.Player;
 import space.sprite.Shot;
+import space.sprite.Sprite;
 
+/*
+ * Swing view of a Simulation. The game rules live in Simulation; the Board
+ * only steps it on a Timer and paints the sprites.
+ */
 public class Board extends JPanel {
 
 	private Dimension d;
-	private List<Alien> aliens;
-	private Player player;
-	private Shot shot;
-
-	private int direction = -1;
-	private int deaths = 0;
-
-	private boolean inGame = true;
-	private String explImg = "src/images/explosion.png";
-	private String message = "Game Over";
+	private Simulation simulation;
 
 	private Timer timer;
-	private int time;
 
-	double[] state;
-
-	private GameController controller;
-	private boolean headLess = false;
-	Random generator = new Random();
+	private ReplayController replay;
+	private int speed = 1;
 
 	public void setSeed(long seed) {
-		generator.setSeed(seed);
+		simulation.setSeed(seed);
 	}
 
 	public Board() {
 		initBoard();
-		gameInit();
-	}
-
-	public Board(GameController controller) {
-		this.headLess = true;
-		this.controller = controller;
-		gameInit();
 	}
 
 	private void initBoard() {
@@ -69,75 +50,57 @@ public class Board extends JPanel {
 		d = new Dimension(Commons.BOARD_WIDTH, Commons.BOARD_HEIGHT);
 		setBackground(Color.black);
 
+		simulation = new Simulation();
+
 		timer = new Timer(Commons.DELAY, new GameCycle());
 		timer.start();
-
-		gameInit();
 	}
 
-	private void gameInit() {
+	private void drawSprite(Graphics g, Sprite sprite) {
 
-		aliens = new ArrayList<>();
-
-		for (int i = 0; i < Commons.NUMBER_OF_LINES; i++) {
-			for (int j = 0; j < Commons.NUMBER_OF_ALIENS_TO_DESTROY / Commons.NUMBER_OF_LINES; j++) {
-
-				Alien alien = new Alien(Commons.ALIEN_INIT_X + 18 * j, Commons.ALIEN_INIT_Y + 18 * i);
-				aliens.add(alien);
-			}
-		}
-
-		player = new Player();
-		shot = new Shot();
+		g.drawImage(SpriteAtlas.getImage(sprite.getSpriteId()), sprite.getX(), sprite.getY(), this);
 	}
 
 	private void drawAliens(Graphics g) {
 
-		for (Alien alien : aliens) {
+		for (Alien alien : simulation.getAliens()) {
 
 			if (alien.isVisible()) {
 
-				g.drawImage(alien.getImage(), alien.getX(), alien.getY(), this);
-			}
-
-			if (alien.isDying()) {
-
-				alien.die();
+				drawSprite(g, alien);
 			}
 		}
 	}
 
 	private void drawPlayer(Graphics g) {
 
-		if (player.isVisible()) {
-
-			g.drawImage(player.getImage(), player.getX(), player.getY(), this);
-		}
+		Player player = simulation.getPlayer();
 
-		if (player.isDying()) {
+		if (player.isVisible()) {
 
-			player.die();
-			inGame = false;
+			drawSprite(g, player);
 		}
 	}
 
 	private void drawShot(Graphics g) {
 
+		Shot shot = simulation.getShot();
+
 		if (shot.isVisible()) {
 
-			g.drawImage(shot.getImage(), shot.getX(), shot.getY(), this);
+			drawSprite(g, shot);
 		}
 	}
 
 	private void drawBombing(Graphics g) {
 
-		for (Alien a : aliens) {
+		for (Alien a : simulation.getAliens()) {
 
 			Alien.Bomb b = a.getBomb();
 
 			if (!b.isDestroyed()) {
 
-				g.drawImage(b.getImage(), b.getX(), b.getY(), this);
+				drawSprite(g, b);
 			}
 		}
 	}
@@ -155,7 +118,7 @@ public class Board extends JPanel {
 		g.fillRect(0, 0, d.width, d.height);
 		g.setColor(Color.green);
 
-		if (inGame) {
+		if (!simulation.isTerminal()) {
 
 			g.drawLine(0, Commons.GROUND, Commons.BOARD_WIDTH, Commons.GROUND);
 
@@ -178,6 +141,8 @@ public class Board extends JPanel {
 
 	private void gameOver(Graphics g) {
 
+		String message = simulation.getMessage();
+
 		g.setColor(Color.black);
 		g.fillRect(0, 0, Commons.BOARD_WIDTH, Commons.BOARD_HEIGHT);
 
@@ -206,215 +171,56 @@ public class Board extends JPanel {
 		return bi;
 	}
 
-	private double[] createState() {
-		double[] state = new double[Commons.STATE_SIZE];
-		int index = 0;
-		for (Alien a : aliens) {
-			state[index++] = (a.getX() * 1.0) / Commons.BOARD_WIDTH;
-			state[index++] = (a.getY() * 1.0) / Commons.BOARD_HEIGHT;
-			state[index++] = a.isDying() ? -1 : 1;
-		}
-		for (Alien a : aliens) {
-			// state[index++] = a.getBomb().isDestroyed()?-1:1;
-			if (!a.getBomb().isDestroyed()) {
-				state[index++] = (a.getBomb().getX() * 1.0) / Commons.BOARD_WIDTH;
-				state[index++] = (a.getBomb().getY() * 1.0) / Commons.BOARD_HEIGHT;
-			} else {
-				state[index++] = 0;
-				state[index++] = 0;
-				
-			}
-		}
-		state[index++] = (player.getX() * 1.0) / Commons.BOARD_WIDTH;
-		if( !shot.isDying()) {
-			state[index++] = (shot.getX() * 1.0) / Commons.BOARD_WIDTH;
-			state[index++] = (shot.getY() * 1.0) / Commons.BOARD_HEIGHT;
-			//state[index++] = shot.isDying() ? -1 : 1;
-		}
-		
-		return state;
-	}
-
-	private void update() {
-
-		time++;
-		if (deaths == Commons.NUMBER_OF_ALIENS_TO_DESTROY) {
-
-			inGame = false;
-			if (!headLess)
-				timer.stop();
-			message = "Game won!";
-		}
-
-		// player
-
-		double[] d = createState();
-		double[] output = controller.nextMove(d);
-
-		player.act(output);
-		if (output[3] > 0.5) {
-			if (inGame) {
-				if (!shot.isVisible()) {
-					shot = new Shot(player.getX(), player.getY());
-				}
-			}
-		}
-
-		// shot
-		if (shot.isVisible()) {
-
-			int shotX = shot.getX();
-			int shotY = shot.getY();
-
-			for (Alien alien : aliens) {
-
-				int alienX = alien.getX();
-				int alienY = alien.getY();
-
-				if (alien.isVisible() && shot.isVisible()) {
-					if (shotX >= (alienX) && shotX <= (alienX + Commons.ALIEN_WIDTH) && shotY >= (alienY)
-							&& shotY <= (alienY + Commons.ALIEN_HEIGHT)) {
-
-						var ii = new ImageIcon(explImg);
-						alien.setImage(ii.getImage());
-						alien.setDying(true);
-						deaths++;
-						shot.die();
-					}
-				}
-			}
-
-			int y = shot.getY();
-			y -= 4;
-
-			if (y < 0) {
-				shot.die();
-			} else {
-				shot.setY(y);
-			}
-		}
-
-		// aliens
-
-		for (Alien alien : aliens) {
-			if (alien.isVisible()) {
-
-				int x = alien.getX();
-
-				if (x >= Commons.BOARD_WIDTH - Commons.BORDER_RIGHT && direction != -1) {
-
-					direction = -1;
-
-					Iterator<Alien> i1 = aliens.iterator();
-
-					while (i1.hasNext()) {
-
-						Alien a2 = i1.next();
-						a2.setY(a2.getY() + Commons.GO_DOWN);
-					}
-				}
-
-				if (x <= Commons.BORDER_LEFT && direction != 1) {
-
-					direction = 1;
-
-					Iterator<Alien> i2 = aliens.iterator();
-
-					while (i2.hasNext()) {
-
-						Alien a = i2.next();
-						a.setY(a.getY() + Commons.GO_DOWN);
-					}
-				}
-				if (alien.isDying()) {
-
-					alien.die();
-				}
-			}
+	private void doGameCycle() {
 
+		for (int i = 0; i < speed && !simulation.isTerminal(); i++) {
+			simulation.step();
 		}
+		repaint();
+	}
 
-		Iterator<Alien> it = aliens.iterator();
-
-		while (it.hasNext()) {
-
-			Alien alien = it.next();
-
-			if (alien.isVisible()) {
+	/*
+	 * Plays the traced game instead of running a controller.
+	 */
+	public void replay(EpisodeTrace trace) {
 
-				int y = alien.getY();
+		replay = new ReplayController(trace);
+		simulation.setController(replay);
+		seek(0);
+	}
 
-				if (y > Commons.GROUND - Commons.ALIEN_HEIGHT) {
-					inGame = false;
-					message = "Invasion!";
-				}
+	/*
+	 * Jumps to the given tick of the replayed game, forwards or backwards, by
+	 * playing the trace again from the start without painting.
+	 */
+	public void seek(int tick) {
 
-				alien.act(direction);
-			}
+		if (replay == null) {
+			throw new IllegalStateException("Only a replay can seek");
 		}
 
-		// bombs
-
-		for (Alien alien : aliens) {
-
-			int shot = generator.nextInt(400);
-			Alien.Bomb bomb = alien.getBomb();
+		simulation.replay(replay.getTrace(), tick);
+		replay.seek(simulation.getTime());
 
-			if ((shot == Commons.CHANCE || alien.getX() == player.getX()) && alien.isVisible() && bomb.isDestroyed()) {
-
-				bomb.setDestroyed(false);
-				bomb.setX(alien.getX());
-				bomb.setY(alien.getY());
-			}
-
-			int bombX = bomb.getX();
-			int bombY = bomb.getY();
-			int playerX = player.getX();
-			int playerY = player.getY();
-
-			if (player.isVisible() && !bomb.isDestroyed()) {
-
-				if (bombX >= (playerX) && bombX <= (playerX + Commons.PLAYER_WIDTH) && bombY >= (playerY)
-						&& bombY <= (playerY + Commons.PLAYER_HEIGHT)) {
-
-					ImageIcon ii = new ImageIcon(explImg);
-					player.setImage(ii.getImage());
-					player.setDying(true);
-					bomb.setDestroyed(true);
-				}
-			}
-
-			if (!bomb.isDestroyed()) {
-
-				bomb.setY(bomb.getY() + 1);
-
-				if (bomb.getY() >= Commons.GROUND - Commons.BOMB_HEIGHT) {
-
-					bomb.setDestroyed(true);
-				}
-			}
+		if (!timer.isRunning()) {
+			timer.start();
 		}
-		if (player.isDying()) {
-
-			player.die();
-			inGame = false;
-		}
-
+		repaint();
 	}
 
+	/*
+	 * Plays this many ticks per frame, to fast-forward.
+	 */
+	public void setSpeed(int speed) {
 
-	public int getDeaths() {
-		return deaths;
-	}
-
-	public int getTime() {
-		return time;
+		if (speed < 1) {
+			throw new IllegalArgumentException("The speed must be positive: " + speed);
+		}
+		this.speed = speed;
 	}
 
-	private void doGameCycle() {
-
-		update();
-		repaint();
+	public Simulation getSimulation() {
+		return simulation;
 	}
 
 	private class GameCycle implements ActionListener {
@@ -426,19 +232,11 @@ public class Board extends JPanel {
 		}
 	}
 
-	public void run() {
-		while (inGame) {
-			update();
-		}
-	}
-
 	public Double getFitness() {
-		double fitness = (double) (getDeaths() * 10000 + getTime());
-		// System.out.println(fitness);
-		return fitness;
+		return simulation.getFitness();
 	}
 
 	public void setController(GameController controller) {
-		this.controller = controller;
+		simulation.setController(controller);
 	}
 }
@@ -0,0 +1,114 @@
+package space;
+
+import java.util.Arrays;
+
+/*
+ * Items bucketed by the x column they stand in, so that a collision test only
+ * looks at the items near a given x. Items are the indexes of the Formation
+ * arrays. Positions outside the board fall in the first or last column.
+ */
+class ColumnIndex {
+
+	private final int columnWidth;
+	private final int[][] columns;
+	private final int[] columnSizes;
+
+	private final int[] columnOf;
+	private final int[] slotOf;
+
+	private final int[] members;
+	private final int[] memberSlotOf;
+	private int size;
+
+	ColumnIndex(int items, int columnWidth, int extent) {
+
+		this.columnWidth = columnWidth;
+
+		int count = extent / columnWidth + 1;
+		columns = new int[count][items];
+		columnSizes = new int[count];
+
+		columnOf = new int[items];
+		slotOf = new int[items];
+
+		members = new int[items];
+		memberSlotOf = new int[items];
+
+		clear();
+	}
+
+	void clear() {
+
+		Arrays.fill(columnSizes, 0);
+		Arrays.fill(columnOf, -1);
+		size = 0;
+	}
+
+	private int column(int x) {
+		return Math.max(0, Math.min(columns.length - 1, Math.floorDiv(x, columnWidth)));
+	}
+
+	boolean contains(int item) {
+		return columnOf[item] >= 0;
+	}
+
+	void add(int item, int x) {
+
+		if (contains(item)) {
+			remove(item);
+		}
+
+		int column = column(x);
+		columnOf[item] = column;
+		slotOf[item] = columnSizes[column];
+		columns[column][columnSizes[column]++] = item;
+
+		memberSlotOf[item] = size;
+		members[size++] = item;
+	}
+
+	void remove(int item) {
+
+		int column = columnOf[item];
+		if (column < 0) {
+			return;
+		}
+
+		int last = columns[column][--columnSizes[column]];
+		columns[column][slotOf[item]] = last;
+		slotOf[last] = slotOf[item];
+		columnOf[item] = -1;
+
+		last = members[--size];
+		members[memberSlotOf[item]] = last;
+		memberSlotOf[last] = memberSlotOf[item];
+	}
+
+	/*
+	 * Copies into candidates every item that may stand between from and to,
+	 * both included, and returns how many there are. Some may stand outside.
+	 */
+	int collect(int from, int to, int[] candidates) {
+
+		int count = 0;
+
+		for (int column = column(from); column <= column(to); column++) {
+			System.arraycopy(columns[column], 0, candidates, count, columnSizes[column]);
+			count += columnSizes[column];
+		}
+
+		return count;
+	}
+
+	int size() {
+		return size;
+	}
+
+	/*
+	 * The k-th item of the index, in no particular order. Removing item k
+	 * moves the last item in its place.
+	 */
+	int member(int k) {
+		return members[k];
+	}
+}
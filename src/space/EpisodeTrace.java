@@ -0,0 +1,223 @@
+package space;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/*
+ * One game told as its seed and the action taken on every tick, which is all
+ * a Simulation needs to play it again without the controller. An action is
+ * what the player does with the controller output: the index of the largest
+ * output, as Player picks it, and whether output 3 fires. Consecutive ticks
+ * with the same action are stored as one run, so a trace holds a few bytes
+ * per change of action.
+ */
+public class EpisodeTrace {
+
+	private static final int MAGIC = 0x53495452;
+	private static final int VERSION = 1;
+	private static final int ACTION_BITS = 3;
+
+	private final long seed;
+
+	private int[] runActions = new int[16];
+	private int[] runEnds = new int[16];
+	private int runs;
+
+	public EpisodeTrace(long seed) {
+		this.seed = seed;
+	}
+
+	public long getSeed() {
+		return seed;
+	}
+
+	public int getTicks() {
+		return runs == 0 ? 0 : runEnds[runs - 1];
+	}
+
+	public int getRuns() {
+		return runs;
+	}
+
+	/*
+	 * The action of the given controller output, between 0 and 7.
+	 */
+	public static int action(double[] output) {
+
+		double max = output[0];
+		int key = 0;
+
+		for (int i = 1; i < output.length; i++) {
+			if (max < output[i]) {
+				key = i;
+				max = output[i];
+			}
+		}
+
+		return key << 1 | (output[3] > 0.5 ? 1 : 0);
+	}
+
+	public void append(double[] output) {
+		appendAction(action(output));
+	}
+
+	private void appendAction(int action) {
+		appendRun(action, 1);
+	}
+
+	private void appendRun(int action, int length) {
+
+		if (runs > 0 && runActions[runs - 1] == action) {
+			runEnds[runs - 1] += length;
+			return;
+		}
+
+		if (runs == runActions.length) {
+			runActions = Arrays.copyOf(runActions, 2 * runs);
+			runEnds = Arrays.copyOf(runEnds, 2 * runs);
+		}
+
+		runActions[runs] = action;
+		runEnds[runs] = getTicks() + length;
+		runs++;
+	}
+
+	/*
+	 * The action of the given tick, counted from 0, found by a binary search
+	 * over the runs.
+	 */
+	public int getAction(int tick) {
+
+		if (tick < 0 || tick >= getTicks()) {
+			throw new IndexOutOfBoundsException("Tick " + tick + " of a " + getTicks() + " tick trace");
+		}
+
+		int low = 0;
+		int high = runs - 1;
+
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (runEnds[middle] > tick) {
+				high = middle;
+			} else {
+				low = middle + 1;
+			}
+		}
+
+		return runActions[low];
+	}
+
+	/*
+	 * Writes into output a controller output that the player turns into the
+	 * action of the given tick, and returns it.
+	 */
+	public double[] getOutput(int tick, double[] output) {
+		return output(getAction(tick), output);
+	}
+
+	/*
+	 * Writes into output a controller output that the player turns into the
+	 * given action, and returns it.
+	 */
+	public static double[] output(int action, double[] output) {
+
+		int key = action >> 1;
+		boolean fire = (action & 1) != 0;
+
+		Arrays.fill(output, 0);
+		output[key] = 1;
+
+		if (key == 3) {
+			output[3] = fire ? 1 : 0.5;
+		} else if (fire) {
+			output[3] = 0.75;
+		}
+
+		return output;
+	}
+
+	public byte[] encode() {
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+		try (DataOutputStream out = new DataOutputStream(bytes)) {
+
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeLong(seed);
+			writeVarInt(out, runs);
+
+			for (int run = 0; run < runs; run++) {
+				int length = runEnds[run] - (run == 0 ? 0 : runEnds[run - 1]);
+				writeVarInt(out, length << ACTION_BITS | runActions[run]);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+
+		return bytes.toByteArray();
+	}
+
+	public static EpisodeTrace decode(byte[] encoded) throws IOException {
+
+		try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(encoded))) {
+
+			if (in.readInt() != MAGIC) {
+				throw new IOException("Not an episode trace");
+			}
+			int version = in.readInt();
+			if (version != VERSION) {
+				throw new IOException("Unsupported episode trace version " + version);
+			}
+
+			EpisodeTrace trace = new EpisodeTrace(in.readLong());
+			int runs = readVarInt(in);
+
+			for (int run = 0; run < runs; run++) {
+				int value = readVarInt(in);
+				trace.appendRun(value & ((1 << ACTION_BITS) - 1), value >>> ACTION_BITS);
+			}
+
+			return trace;
+		}
+	}
+
+	public void write(Path path) throws IOException {
+		Files.write(path, encode());
+	}
+
+	public static EpisodeTrace read(Path path) throws IOException {
+		return decode(Files.readAllBytes(path));
+	}
+
+	private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+
+		while ((value & ~0x7F) != 0) {
+			out.writeByte((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.writeByte(value);
+	}
+
+	private static int readVarInt(DataInputStream in) throws IOException {
+
+		int value = 0;
+
+		for (int shift = 0; shift < 32; shift += 7) {
+			int b = in.readUnsignedByte();
+			value |= (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+
+		throw new IOException("Malformed varint");
+	}
+}
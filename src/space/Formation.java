@@ -0,0 +1,232 @@
+package space;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import space.sprite.Alien;
+import space.sprite.SpriteId;
+
+/*
+ * The aliens and their bombs kept as parallel primitive arrays, indexed in the
+ * order the aliens were created (line by line, left to right). Simulation walks
+ * these arrays directly; getAliens() exposes them as Alien sprites for the
+ * Swing renderer.
+ *
+ * The formation moves as a group: every alien descends by shiftY and every
+ * living alien moves sideways by shiftX, so alienY holds the line of each
+ * alien and alienX the column of each living alien, both as they were at the
+ * reset. An alien that dies stops moving sideways and gets its final x in
+ * alienX. Moving the formation is then a matter of changing the two shifts,
+ * and the bounding box of the living aliens only changes when one dies.
+ *
+ * Living aliens are indexed by their column, which only changes when one of
+ * them dies. Falling bombs never move sideways and are indexed by their own
+ * column.
+ */
+public class Formation {
+
+	private static final int COLUMN_WIDTH = 16;
+
+	final int size;
+
+	final int[] alienX;
+	final int[] alienY;
+	final boolean[] alienVisible;
+	final boolean[] alienDying;
+
+	final int[] bombX;
+	final int[] bombY;
+	final boolean[] bombDestroyed;
+
+	final ColumnIndex alienColumns;
+	final ColumnIndex bombColumns;
+	int shiftX;
+	int shiftY;
+
+	// bounds of the living aliens, without the shifts
+	int living;
+	int minX;
+	int maxX;
+	int maxY;
+
+	private List<Alien> views;
+
+	public Formation() {
+
+		size = Commons.NUMBER_OF_ALIENS_TO_DESTROY;
+
+		alienX = new int[size];
+		alienY = new int[size];
+		alienVisible = new boolean[size];
+		alienDying = new boolean[size];
+
+		bombX = new int[size];
+		bombY = new int[size];
+		bombDestroyed = new boolean[size];
+
+		alienColumns = new ColumnIndex(size, COLUMN_WIDTH, Commons.BOARD_WIDTH);
+		bombColumns = new ColumnIndex(size, COLUMN_WIDTH, Commons.BOARD_WIDTH);
+
+		reset();
+	}
+
+	public void reset() {
+
+		int perLine = Commons.NUMBER_OF_ALIENS_TO_DESTROY / Commons.NUMBER_OF_LINES;
+
+		alienColumns.clear();
+		bombColumns.clear();
+		shiftX = 0;
+		shiftY = 0;
+
+		for (int i = 0; i < size; i++) {
+
+			alienX[i] = Commons.ALIEN_INIT_X + 18 * (i % perLine);
+			alienY[i] = Commons.ALIEN_INIT_Y + 18 * (i / perLine);
+			alienVisible[i] = true;
+			alienDying[i] = false;
+
+			bombX[i] = alienX[i];
+			bombY[i] = alienY[i];
+			bombDestroyed[i] = true;
+
+			alienColumns.add(i, alienX[i]);
+		}
+
+		bound();
+		views = null;
+	}
+
+	/*
+	 * Takes over the state of another formation. The column indexes are built
+	 * again rather than copied, as their order does not matter.
+	 */
+	void copyFrom(Formation other) {
+
+		System.arraycopy(other.alienX, 0, alienX, 0, size);
+		System.arraycopy(other.alienY, 0, alienY, 0, size);
+		System.arraycopy(other.alienVisible, 0, alienVisible, 0, size);
+		System.arraycopy(other.alienDying, 0, alienDying, 0, size);
+		System.arraycopy(other.bombX, 0, bombX, 0, size);
+		System.arraycopy(other.bombY, 0, bombY, 0, size);
+		System.arraycopy(other.bombDestroyed, 0, bombDestroyed, 0, size);
+
+		shiftX = other.shiftX;
+		shiftY = other.shiftY;
+
+		alienColumns.clear();
+		bombColumns.clear();
+
+		for (int i = 0; i < size; i++) {
+
+			if (alienVisible[i]) {
+				alienColumns.add(i, alienX[i]);
+			}
+
+			if (!bombDestroyed[i]) {
+				bombColumns.add(i, bombX[i]);
+			}
+		}
+
+		bound();
+	}
+
+	/*
+	 * Stops a living alien where it stands.
+	 */
+	void kill(int i) {
+
+		alienX[i] += shiftX;
+		alienVisible[i] = false;
+		alienColumns.remove(i);
+		bound();
+	}
+
+	private void bound() {
+
+		living = 0;
+		minX = Integer.MAX_VALUE;
+		maxX = Integer.MIN_VALUE;
+		maxY = Integer.MIN_VALUE;
+
+		for (int i = 0; i < size; i++) {
+			if (alienVisible[i]) {
+
+				living++;
+				minX = Math.min(minX, alienX[i]);
+				maxX = Math.max(maxX, alienX[i]);
+				maxY = Math.max(maxY, alienY[i]);
+			}
+		}
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public int getAlienX(int i) {
+		return alienVisible[i] ? alienX[i] + shiftX : alienX[i];
+	}
+
+	public int getAlienY(int i) {
+		return alienY[i] + shiftY;
+	}
+
+	public boolean isAlienVisible(int i) {
+		return alienVisible[i];
+	}
+
+	public boolean isAlienDying(int i) {
+		return alienDying[i];
+	}
+
+	public int getBombX(int i) {
+		return bombX[i];
+	}
+
+	public int getBombY(int i) {
+		return bombY[i];
+	}
+
+	public boolean isBombDestroyed(int i) {
+		return bombDestroyed[i];
+	}
+
+	/*
+	 * Alien sprites mirroring the arrays. The same objects are returned until the
+	 * next reset and are brought up to date on every call.
+	 */
+	public List<Alien> getAliens() {
+
+		if (views == null) {
+
+			views = new ArrayList<>(size);
+
+			for (int i = 0; i < size; i++) {
+				views.add(new Alien(getAlienX(i), getAlienY(i)));
+			}
+		}
+
+		for (int i = 0; i < size; i++) {
+
+			Alien alien = views.get(i);
+
+			alien.setX(getAlienX(i));
+			alien.setY(getAlienY(i));
+			alien.setDying(alienDying[i]);
+			alien.setSpriteId(alienDying[i] ? SpriteId.EXPLOSION : SpriteId.ALIEN);
+
+			if (!alienVisible[i]) {
+				alien.die();
+			}
+
+			Alien.Bomb bomb = alien.getBomb();
+
+			bomb.setX(bombX[i]);
+			bomb.setY(bombY[i]);
+			bomb.setDestroyed(bombDestroyed[i]);
+		}
+
+		return views;
+	}
+}
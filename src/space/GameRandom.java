@@ -0,0 +1,40 @@
+package space;
+
+import java.util.Random;
+
+/*
+ * The generator of java.util.Random, giving the same numbers for the same
+ * seed, with a state that can be read and set again so that a Simulation can
+ * be snapshot. Only the draws made through next(bits) are covered: the spare
+ * value kept by nextGaussian() is not part of the state.
+ */
+class GameRandom extends Random {
+
+	private static final long serialVersionUID = 1L;
+
+	private static final long MULTIPLIER = 0x5DEECE66DL;
+	private static final long ADDEND = 0xBL;
+	private static final long MASK = (1L << 48) - 1;
+
+	private long state;
+
+	@Override
+	public synchronized void setSeed(long seed) {
+		super.setSeed(seed);
+		state = (seed ^ MULTIPLIER) & MASK;
+	}
+
+	@Override
+	protected int next(int bits) {
+		state = (state * MULTIPLIER + ADDEND) & MASK;
+		return (int) (state >>> (48 - bits));
+	}
+
+	long getState() {
+		return state;
+	}
+
+	void setState(long state) {
+		this.state = state & MASK;
+	}
+}
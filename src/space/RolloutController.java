@@ -0,0 +1,80 @@
+package space;
+
+import java.util.SplittableRandom;
+
+import controllers.GameController;
+
+/*
+ * Plans every move of a game by lookahead. Before each tick the game is
+ * snapshot, and every candidate action (stand, left or right, each with or
+ * without firing) is tried on a scratch copy: the action is played, then
+ * horizon more ticks of random actions, rollouts times over. The candidate
+ * whose rollouts reach the best mean fitness is played.
+ *
+ * The game must be the Simulation this controller is set on, since the
+ * observation alone does not hold enough state to fork the game.
+ */
+public class RolloutController implements GameController {
+
+	private static final int[] CANDIDATES = { 0, 1, 2, 3, 4, 5 };
+
+	private final Simulation game;
+	private final int rollouts;
+	private final int horizon;
+	private final SplittableRandom random;
+
+	private final Simulation scratch = new Simulation();
+	private final Simulation.Snapshot snapshot = new Simulation.Snapshot();
+	private final double[][] outputs = new double[CANDIDATES.length][Commons.NUM_ACTIONS];
+	private final double[] output = new double[Commons.NUM_ACTIONS];
+
+	public RolloutController(Simulation game, int rollouts, int horizon, long seed) {
+
+		if (rollouts < 1) {
+			throw new IllegalArgumentException("At least one rollout is required: " + rollouts);
+		}
+
+		this.game = game;
+		this.rollouts = rollouts;
+		this.horizon = horizon;
+		this.random = new SplittableRandom(seed);
+
+		for (int c = 0; c < CANDIDATES.length; c++) {
+			EpisodeTrace.output(CANDIDATES[c], outputs[c]);
+		}
+	}
+
+	@Override
+	public double[] nextMove(double[] currentState) {
+
+		game.snapshot(snapshot);
+
+		int best = 0;
+		double bestScore = Double.NEGATIVE_INFINITY;
+
+		for (int c = 0; c < CANDIDATES.length; c++) {
+
+			double score = 0;
+
+			for (int r = 0; r < rollouts; r++) {
+
+				scratch.restore(snapshot);
+				scratch.step(outputs[c]);
+
+				for (int tick = 0; tick < horizon && !scratch.isTerminal(); tick++) {
+					scratch.step(outputs[random.nextInt(CANDIDATES.length)]);
+				}
+
+				score += scratch.getFitness();
+			}
+
+			if (score > bestScore) {
+				best = c;
+				bestScore = score;
+			}
+		}
+
+		System.arraycopy(outputs[best], 0, output, 0, output.length);
+		return output;
+	}
+}
@@ -0,0 +1,479 @@
+package space;
+
+import java.util.List;
+
+import controllers.GameController;
+import main.Telemetry;
+import space.sprite.Alien;
+import space.sprite.Player;
+import space.sprite.Shot;
+import space.sprite.SpriteId;
+
+/*
+ * The game rules without any java.awt or javax.swing dependency. A Simulation
+ * can be stepped by a Swing Board or run headless for fitness evaluation.
+ *
+ * A step does not allocate: the observation buffer and the shot are reused and
+ * the aliens and bombs are walked as the primitive arrays of a Formation. The array given to the controller is
+ * overwritten on the next step. The shot and bomb collision tests only look at
+ * the aliens and bombs the Formation indexes in the columns around them.
+ *
+ * The whole state of a game, its random generator included, can be copied
+ * into a Snapshot and restored later, into the same or another Simulation,
+ * to try several futures of the same position.
+ */
+public class Simulation {
+
+	private final Formation formation = new Formation();
+	private final int[] candidates = new int[formation.size];
+	private Player player;
+	private Shot shot;
+
+	private int direction;
+	private int deaths;
+
+	private boolean inGame;
+	private String message;
+
+	private int time;
+	private int maxTicks = Integer.MAX_VALUE;
+
+	private final double[] state = new double[Commons.STATE_SIZE];
+
+	private GameController controller;
+	private GameRandom generator = new GameRandom();
+
+	private EpisodeTrace trace;
+
+	public Simulation() {
+		reset();
+	}
+
+	public Simulation(GameController controller) {
+		this.controller = controller;
+		reset();
+	}
+
+	/*
+	 * A saved game state. Its buffers are reused from one snapshot to the next.
+	 */
+	public static class Snapshot {
+
+		private final Formation formation = new Formation();
+		private final Player player = new Player();
+		private final Shot shot = new Shot();
+
+		private int direction;
+		private int deaths;
+		private boolean inGame;
+		private String message;
+		private int time;
+		private int maxTicks;
+		private long random;
+	}
+
+	public Snapshot snapshot() {
+
+		Snapshot snapshot = new Snapshot();
+		snapshot(snapshot);
+		return snapshot;
+	}
+
+	public void snapshot(Snapshot snapshot) {
+
+		snapshot.formation.copyFrom(formation);
+		snapshot.player.copyFrom(player);
+		snapshot.shot.copyFrom(shot);
+
+		snapshot.direction = direction;
+		snapshot.deaths = deaths;
+		snapshot.inGame = inGame;
+		snapshot.message = message;
+		snapshot.time = time;
+		snapshot.maxTicks = maxTicks;
+		snapshot.random = generator.getState();
+	}
+
+	/*
+	 * Puts the game back in the state of the snapshot. The controller and the
+	 * trace being recorded are left as they are.
+	 */
+	public void restore(Snapshot snapshot) {
+
+		formation.copyFrom(snapshot.formation);
+		player.copyFrom(snapshot.player);
+		shot.copyFrom(snapshot.shot);
+
+		direction = snapshot.direction;
+		deaths = snapshot.deaths;
+		inGame = snapshot.inGame;
+		message = snapshot.message;
+		time = snapshot.time;
+		maxTicks = snapshot.maxTicks;
+		generator.setState(snapshot.random);
+	}
+
+	public void setSeed(long seed) {
+		generator.setSeed(seed);
+	}
+
+	public void setController(GameController controller) {
+		this.controller = controller;
+	}
+
+	/*
+	 * Ends the game after the given number of ticks, whatever its state.
+	 */
+	public void setMaxTicks(int maxTicks) {
+		if (maxTicks < 1) throw new IllegalArgumentException("The tick budget must be positive: " + maxTicks);
+		this.maxTicks = maxTicks;
+	}
+
+	public int getMaxTicks() {
+		return maxTicks;
+	}
+
+	/*
+	 * Appends the action of every following step to trace, or stops recording
+	 * when trace is null. The trace should start with the game, right after a
+	 * reset with its seed.
+	 */
+	public void setTrace(EpisodeTrace trace) {
+		this.trace = trace;
+	}
+
+	/*
+	 * Resets to the start of the traced game and plays its first ticks actions
+	 * without a controller, stopping early if the game ends.
+	 */
+	public void replay(EpisodeTrace trace, int ticks) {
+
+		reset(trace.getSeed());
+
+		double[] output = new double[Commons.NUM_ACTIONS];
+		int end = Math.min(ticks, trace.getTicks());
+
+		for (int tick = 0; tick < end && !isTerminal(); tick++) {
+			step(trace.getOutput(tick, output));
+		}
+	}
+
+	public void reset(long seed) {
+		setSeed(seed);
+		reset();
+	}
+
+	public void reset() {
+
+		formation.reset();
+
+		player = new Player();
+		shot = new Shot();
+
+		direction = -1;
+		deaths = 0;
+		inGame = true;
+		message = "Game Over";
+		time = 0;
+	}
+
+	private double[] createState() {
+		int index = 0;
+		for (int i = 0; i < formation.size; i++) {
+			state[index++] = (formation.getAlienX(i) * 1.0) / Commons.BOARD_WIDTH;
+			state[index++] = (formation.getAlienY(i) * 1.0) / Commons.BOARD_HEIGHT;
+			state[index++] = formation.alienDying[i] ? -1 : 1;
+		}
+		for (int i = 0; i < formation.size; i++) {
+			if (!formation.bombDestroyed[i]) {
+				state[index++] = (formation.bombX[i] * 1.0) / Commons.BOARD_WIDTH;
+				state[index++] = (formation.bombY[i] * 1.0) / Commons.BOARD_HEIGHT;
+			} else {
+				state[index++] = 0;
+				state[index++] = 0;
+			}
+		}
+		state[index++] = (player.getX() * 1.0) / Commons.BOARD_WIDTH;
+		if (!shot.isDying()) {
+			state[index++] = (shot.getX() * 1.0) / Commons.BOARD_WIDTH;
+			state[index++] = (shot.getY() * 1.0) / Commons.BOARD_HEIGHT;
+		} else {
+			state[index++] = 0;
+			state[index++] = 0;
+		}
+
+		return state;
+	}
+
+	/*
+	 * The observation the controller would get on the next step. The buffer is
+	 * reused from step to step.
+	 */
+	public double[] observe() {
+		return createState();
+	}
+
+	public void step() {
+
+		if (Telemetry.isEnabled()) {
+
+			long start = Telemetry.start();
+			double[] output = controller.nextMove(createState());
+			Telemetry.stop(Telemetry.Phase.INFER, start);
+
+			start = Telemetry.start();
+			step(output);
+			Telemetry.stop(Telemetry.Phase.SIMULATE, start);
+			return;
+		}
+
+		step(controller.nextMove(createState()));
+	}
+
+	/*
+	 * Plays one tick with the given controller output instead of asking the
+	 * controller, for callers that run the inference themselves.
+	 */
+	public void step(double[] output) {
+
+		if (trace != null) {
+			trace.append(output);
+		}
+
+		int size = formation.size;
+		int[] alienX = formation.alienX;
+		int[] alienY = formation.alienY;
+		boolean[] alienVisible = formation.alienVisible;
+		boolean[] alienDying = formation.alienDying;
+		int[] bombX = formation.bombX;
+		int[] bombY = formation.bombY;
+		boolean[] bombDestroyed = formation.bombDestroyed;
+
+		time++;
+		if (deaths == Commons.NUMBER_OF_ALIENS_TO_DESTROY) {
+
+			inGame = false;
+			message = "Game won!";
+		}
+
+		// player
+
+		player.act(output);
+		if (output[3] > 0.5) {
+			if (inGame) {
+				if (!shot.isVisible()) {
+					shot.fire(player.getX(), player.getY());
+				}
+			}
+		}
+
+		// shot
+		int hit = size;
+
+		if (shot.isVisible()) {
+
+			int shotX = shot.getX();
+			int shotY = shot.getY();
+
+			// the first alien hit in creation order takes the shot
+			int count = formation.alienColumns.collect(shotX - formation.shiftX - Commons.ALIEN_WIDTH,
+					shotX - formation.shiftX, candidates);
+
+			for (int k = 0; k < count; k++) {
+
+				int i = candidates[k];
+				int x = alienX[i] + formation.shiftX;
+				int y = alienY[i] + formation.shiftY;
+
+				if (i < hit && alienVisible[i]) {
+					if (shotX >= (x) && shotX <= (x + Commons.ALIEN_WIDTH) && shotY >= (y)
+							&& shotY <= (y + Commons.ALIEN_HEIGHT)) {
+
+						hit = i;
+					}
+				}
+			}
+
+			if (hit < size) {
+
+				alienDying[hit] = true;
+				deaths++;
+				shot.die();
+			}
+
+			int y = shot.getY();
+			y -= 4;
+
+			if (y < 0) {
+				shot.die();
+			} else {
+				shot.setY(y);
+			}
+		}
+
+		// aliens
+
+		if (formation.living > 0) {
+
+			boolean right = formation.maxX + formation.shiftX >= Commons.BOARD_WIDTH - Commons.BORDER_RIGHT;
+			boolean left = formation.minX + formation.shiftX <= Commons.BORDER_LEFT;
+
+			if (right && left) {
+
+				// a formation wider than the board turns once per alien touching a border
+				for (int i = 0; i < size; i++) {
+					if (alienVisible[i]) {
+
+						int x = alienX[i] + formation.shiftX;
+
+						if (x >= Commons.BOARD_WIDTH - Commons.BORDER_RIGHT && direction != -1) {
+							direction = -1;
+							formation.shiftY += Commons.GO_DOWN;
+						}
+
+						if (x <= Commons.BORDER_LEFT && direction != 1) {
+							direction = 1;
+							formation.shiftY += Commons.GO_DOWN;
+						}
+					}
+				}
+			} else if (right && direction != -1) {
+
+				direction = -1;
+				formation.shiftY += Commons.GO_DOWN;
+			} else if (left && direction != 1) {
+
+				direction = 1;
+				formation.shiftY += Commons.GO_DOWN;
+			}
+		}
+
+		if (hit < size) {
+			formation.kill(hit);
+		}
+
+		if (formation.living > 0 && formation.maxY + formation.shiftY > Commons.GROUND - Commons.ALIEN_HEIGHT) {
+			inGame = false;
+			message = "Invasion!";
+		}
+
+		formation.shiftX += direction;
+
+		// bombs
+
+		int playerX = player.getX();
+		int playerY = player.getY();
+
+		// one draw per alien and tick, whether or not it can drop a bomb, keeps
+		// the games of a seed unchanged
+		ColumnIndex bombColumns = formation.bombColumns;
+
+		for (int i = 0; i < size; i++) {
+
+			int shot = generator.nextInt(400);
+
+			if ((shot == Commons.CHANCE || alienX[i] + formation.shiftX == playerX) && alienVisible[i] && bombDestroyed[i]) {
+
+				bombDestroyed[i] = false;
+				bombX[i] = alienX[i] + formation.shiftX;
+				bombY[i] = alienY[i] + formation.shiftY;
+				bombColumns.add(i, bombX[i]);
+			}
+		}
+
+		// bombs do not interact, so each can be tested and moved after all drops
+
+		if (player.isVisible()) {
+
+			int count = bombColumns.collect(playerX, playerX + Commons.PLAYER_WIDTH, candidates);
+
+			for (int k = 0; k < count; k++) {
+
+				int i = candidates[k];
+
+				if (bombX[i] >= (playerX) && bombX[i] <= (playerX + Commons.PLAYER_WIDTH) && bombY[i] >= (playerY)
+						&& bombY[i] <= (playerY + Commons.PLAYER_HEIGHT)) {
+
+					player.setSpriteId(SpriteId.EXPLOSION);
+					player.setDying(true);
+					bombDestroyed[i] = true;
+					bombColumns.remove(i);
+				}
+			}
+		}
+
+		for (int k = bombColumns.size() - 1; k >= 0; k--) {
+
+			int i = bombColumns.member(k);
+
+			bombY[i]++;
+
+			if (bombY[i] >= Commons.GROUND - Commons.BOMB_HEIGHT) {
+
+				bombDestroyed[i] = true;
+				bombColumns.remove(i);
+			}
+		}
+		if (player.isDying()) {
+
+			player.die();
+			inGame = false;
+		}
+
+	}
+
+	public void run() {
+
+		Telemetry.EpisodeEvent event = new Telemetry.EpisodeEvent();
+		event.begin();
+
+		while (!isTerminal()) {
+			step();
+		}
+
+		Telemetry.episode(time, getFitness());
+		if (event.shouldCommit()) {
+			event.ticks = time;
+			event.deaths = deaths;
+			event.fitness = getFitness();
+			event.commit();
+		}
+	}
+
+	public boolean isTerminal() {
+		return !inGame || time >= maxTicks;
+	}
+
+	public Formation getFormation() {
+		return formation;
+	}
+
+	public List<Alien> getAliens() {
+		return formation.getAliens();
+	}
+
+	public Player getPlayer() {
+		return player;
+	}
+
+	public Shot getShot() {
+		return shot;
+	}
+
+	public String getMessage() {
+		return message;
+	}
+
+	public int getDeaths() {
+		return deaths;
+	}
+
+	public int getTime() {
+		return time;
+	}
+
+	public Double getFitness() {
+		double fitness = (double) (getDeaths() * 10000 + getTime());
+		return fitness;
+	}
+}
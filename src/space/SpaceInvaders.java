@@ -38,6 +38,16 @@ public class SpaceInvaders extends JFrame {
         });
     }
 
+    public static void showReplay(EpisodeTrace trace, int speed) {
+        EventQueue.invokeLater(() -> {
+
+            var ex = new SpaceInvaders();
+            ex.board.setSpeed(speed);
+            ex.board.replay(trace);
+            ex.setVisible(true);
+        });
+    }
+
     public void setController(GameController controller) {
         board.setController(controller);
     }
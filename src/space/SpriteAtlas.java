@@ -0,0 +1,42 @@
+package space;
+
+import java.awt.GraphicsEnvironment;
+import java.awt.Image;
+import java.util.EnumMap;
+import java.util.Map;
+
+import javax.swing.ImageIcon;
+
+import space.sprite.SpriteId;
+
+/*
+ * Process-wide cache of the sprite pictures. Each picture is decoded once, the
+ * first time it is painted. In a headless JVM nothing is ever loaded and
+ * getImage returns null.
+ */
+public final class SpriteAtlas {
+
+	private static final String IMAGES_DIR = "src/images/";
+
+	private static final Map<SpriteId, Image> images = new EnumMap<>(SpriteId.class);
+
+	private SpriteAtlas() {
+	}
+
+	public static synchronized Image getImage(SpriteId id) {
+
+		if (GraphicsEnvironment.isHeadless()) {
+			return null;
+		}
+
+		Image image = images.get(id);
+
+		if (image == null) {
+
+			image = new ImageIcon(IMAGES_DIR + id.getFileName()).getImage();
+			images.put(id, image);
+		}
+
+		return image;
+	}
+}
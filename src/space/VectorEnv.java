@@ -0,0 +1,110 @@
+package space;
+
+/*
+ * Several Simulations stepped in lockstep. Observations and controller outputs
+ * are exchanged as row-major matrices, one row per game, so that a caller can
+ * run the inference for all games in one batch. Games that are over are
+ * masked out: their rows are neither written nor read any more.
+ */
+public class VectorEnv {
+
+	private final Simulation[] envs;
+	private final boolean[] active;
+	private final double[] action = new double[Commons.NUM_ACTIONS];
+	private int activeCount;
+
+	public VectorEnv(int size) {
+
+		envs = new Simulation[size];
+		active = new boolean[size];
+
+		for (int i = 0; i < size; i++) {
+			envs[i] = new Simulation();
+		}
+	}
+
+	public void reset(long seed) {
+
+		for (int i = 0; i < envs.length; i++) {
+			envs[i].reset(seed);
+			active[i] = true;
+		}
+		activeCount = envs.length;
+	}
+
+	public void reset(long[] seeds) {
+
+		if (seeds.length != envs.length)
+			throw new IllegalArgumentException(seeds.length + " seeds for " + envs.length + " games");
+
+		for (int i = 0; i < envs.length; i++) {
+			envs[i].reset(seeds[i]);
+			active[i] = true;
+		}
+		activeCount = envs.length;
+	}
+
+	public int size() {
+		return envs.length;
+	}
+
+	public boolean isActive(int i) {
+		return active[i];
+	}
+
+	/*
+	 * The mask of games still running. The array is owned by the VectorEnv.
+	 */
+	public boolean[] getActive() {
+		return active;
+	}
+
+	public int getActiveCount() {
+		return activeCount;
+	}
+
+	public boolean isTerminal() {
+		return activeCount == 0;
+	}
+
+	/*
+	 * Copies the observation of every running game into its row of
+	 * observations, which holds size() rows of Commons.STATE_SIZE.
+	 */
+	public void observe(double[] observations) {
+
+		for (int i = 0; i < envs.length; i++) {
+			if (active[i]) {
+				System.arraycopy(envs[i].observe(), 0, observations, i * Commons.STATE_SIZE, Commons.STATE_SIZE);
+			}
+		}
+	}
+
+	/*
+	 * Steps every running game with its row of outputs, which holds size() rows
+	 * of Commons.NUM_ACTIONS, and masks out the games that ended.
+	 */
+	public void step(double[] outputs) {
+
+		for (int i = 0; i < envs.length; i++) {
+			if (active[i]) {
+
+				System.arraycopy(outputs, i * Commons.NUM_ACTIONS, action, 0, Commons.NUM_ACTIONS);
+				envs[i].step(action);
+
+				if (envs[i].isTerminal()) {
+					active[i] = false;
+					activeCount--;
+				}
+			}
+		}
+	}
+
+	public Simulation get(int i) {
+		return envs[i];
+	}
+
+	public double getFitness(int i) {
+		return envs[i].getFitness();
+	}
+}
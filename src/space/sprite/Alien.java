@@ -1,7 +1,5 @@
 package space.sprite;
 
-import javax.swing.ImageIcon;
-
 public class Alien extends Sprite {
 
     private Bomb bomb;
@@ -18,10 +16,7 @@ public class Alien extends Sprite {
 
         bomb = new Bomb(x, y);
 
-        String alienImg = "src/images/alien.png";
-        ImageIcon ii = new ImageIcon(alienImg);
-
-        setImage(ii.getImage());
+        setSpriteId(SpriteId.ALIEN);
     }
 
     public void act(int direction) {
@@ -50,9 +45,7 @@ public class Alien extends Sprite {
             this.x = x;
             this.y = y;
 
-            String bombImg = "src/images/bomb.png";
-            ImageIcon ii = new ImageIcon(bombImg);
-            setImage(ii.getImage());
+            setSpriteId(SpriteId.BOMB);
         }
 
         public void setDestroyed(boolean destroyed) {
@@ -1,11 +1,7 @@
 package space.sprite;
 
-import javax.swing.ImageIcon;
-
 import space.Commons;
 
-import java.awt.event.KeyEvent;
-
 public class Player extends Sprite {
 
 	private int width;
@@ -17,11 +13,8 @@ public class Player extends Sprite {
 
 	private void initPlayer() {
 
-		String playerImg = "src/images/player.png";
-		ImageIcon ii = new ImageIcon(playerImg);
-
-		width = ii.getImage().getWidth(null);
-		setImage(ii.getImage());
+		width = Commons.PLAYER_WIDTH;
+		setSpriteId(SpriteId.PLAYER);
 
 		int START_X = 270;
 		setX(START_X);
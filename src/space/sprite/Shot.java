@@ -1,10 +1,10 @@
 package space.sprite;
 
-import javax.swing.ImageIcon;
-
 public class Shot extends Sprite {
 
     public Shot() {
+
+        setSpriteId(SpriteId.SHOT);
     }
 
     public Shot(int x, int y) {
@@ -12,11 +12,16 @@ public class Shot extends Sprite {
         initShot(x, y);
     }
 
+    public void fire(int x, int y) {
+
+        setVisible(true);
+        setDying(false);
+        initShot(x, y);
+    }
+
     private void initShot(int x, int y) {
 
-        String shotImg = "src/images/shot.png";
-        ImageIcon ii = new ImageIcon(shotImg);
-        setImage(ii.getImage());
+        setSpriteId(SpriteId.SHOT);
 
         int H_SPACE = 6;
         setX(x + H_SPACE);
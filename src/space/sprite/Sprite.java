@@ -1,11 +1,9 @@
 package space.sprite;
 
-import java.awt.Image;
-
 public class Sprite {
 
     private boolean visible;
-    private Image image;
+    private SpriteId spriteId;
     private boolean dying;
 
     int x;
@@ -32,14 +30,14 @@ public class Sprite {
         this.visible = visible;
     }
 
-    public void setImage(Image image) {
+    public void setSpriteId(SpriteId spriteId) {
 
-        this.image = image;
+        this.spriteId = spriteId;
     }
 
-    public Image getImage() {
+    public SpriteId getSpriteId() {
 
-        return image;
+        return spriteId;
     }
 
     public void setX(int x) {
@@ -71,4 +69,17 @@ public class Sprite {
 
         return this.dying;
     }
+
+    /*
+     * Takes over the whole state of another sprite of the same kind.
+     */
+    public void copyFrom(Sprite other) {
+
+        visible = other.visible;
+        spriteId = other.spriteId;
+        dying = other.dying;
+        x = other.x;
+        y = other.y;
+        dx = other.dx;
+    }
 }
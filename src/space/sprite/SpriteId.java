@@ -0,0 +1,24 @@
+package space.sprite;
+
+//Identifies the picture of a sprite. The pictures themselves are loaded by the renderer, see space.SpriteAtlas.
+
+public enum SpriteId {
+
+    ALIEN("alien.png"),
+    BOMB("bomb.png"),
+    PLAYER("player.png"),
+    SHOT("shot.png"),
+    EXPLOSION("explosion.png");
+
+    private final String fileName;
+
+    SpriteId(String fileName) {
+
+        this.fileName = fileName;
+    }
+
+    public String getFileName() {
+
+        return fileName;
+    }
+}
@@ -0,0 +1,56 @@
+package nn;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.logging.Level;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import main.PlayAiController;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+//Fixed-seed regressions: a change that alters what a seed trains must show up here.
+
+public class AiGeneticEvolutionTest {
+    private static final int SEED_BOARD = 42;
+    private static final int GENERATIONS = 3;
+    private static final double BEST_FITNESS = 63425.0;
+
+    @BeforeAll
+    public static void quiet() {
+        PlayAiController.logger.setLevel(Level.WARNING);
+    }
+
+    private static AiFeedForwardController train(int workers) {
+        try (AiGeneticEvolution evolution = new AiGeneticEvolution(SEED_BOARD, workers)) {
+            for (int i = 0; i < GENERATIONS; i++)
+                evolution.nextGeneration();
+            return evolution.getBestNetwork();
+        }
+    }
+
+    @Test
+    public void episodeOfASeededNetwork() {
+        AiFeedForwardController network = new AiFeedForwardController();
+        network.initializeWeightsAndBiases(new Random(7));
+        assertEquals(544, network.calculateAndSetFitness(SEED_BOARD, Integer.MAX_VALUE));
+        assertEquals(30544.0, network.getFitness());
+    }
+
+    @Test
+    public void bestFitnessAfterFixedSeedRun() {
+        assertEquals(BEST_FITNESS, train(1).getFitness());
+    }
+
+    @Test
+    public void workerCountDoesNotChangeTheRun() {
+        AiFeedForwardController single = train(1);
+        AiFeedForwardController parallel = train(3);
+        assertEquals(single.getFitness(), parallel.getFitness());
+        assertArrayEquals(single.getGenome(), parallel.getGenome());
+        assertEquals(-704696093, Arrays.hashCode(parallel.getGenome()));
+    }
+}
@@ -0,0 +1,85 @@
+package nn;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.util.List;
+import java.util.Random;
+import java.util.logging.Level;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import main.PlayAiController;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+//An EvaluationWorker on loopback must score every genome as this JVM does.
+
+public class RemoteEvaluatorTest {
+    private static final int NETWORKS = 9;
+    private static final int MAX_TICKS = 2000;
+
+    private ServerSocketChannel server;
+
+    @BeforeEach
+    public void startWorker() throws IOException {
+        PlayAiController.logger.setLevel(Level.WARNING);
+        server = ServerSocketChannel.open().bind(new InetSocketAddress("127.0.0.1", 0));
+        Thread worker = new Thread(() -> {
+            try {
+                new EvaluationWorker(2).serve(server);
+            } catch (IOException e) {
+                // the server was closed by stopWorker
+            }
+        }, "loopback-worker");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @AfterEach
+    public void stopWorker() throws IOException {
+        server.close();
+    }
+
+    private static AiFeedForwardController[] networks() {
+        Random random = new Random(11);
+        AiFeedForwardController[] networks = new AiFeedForwardController[NETWORKS];
+        for (int i = 0; i < NETWORKS; i++) {
+            networks[i] = new AiFeedForwardController();
+            networks[i].initializeWeightsAndBiases(random);
+        }
+        return networks;
+    }
+
+    @Test
+    public void sameSeedMatchesLocal() throws IOException {
+        AiFeedForwardController[] networks = networks();
+        try (RemoteEvaluator remote = new RemoteEvaluator(List.of(server.getLocalAddress()))) {
+            assertEquals(2, remote.getThreads());
+            remote.evaluate(networks, 42, MAX_TICKS);
+        }
+        for (AiFeedForwardController network : networks) {
+            AiFeedForwardController local = new AiFeedForwardController(network.getGenome());
+            local.calculateAndSetFitness(42, MAX_TICKS);
+            assertEquals(local.getFitness(), network.getFitness());
+        }
+    }
+
+    @Test
+    public void seedPerNetworkMatchesLocal() throws IOException {
+        AiFeedForwardController[] networks = networks();
+        int[] seeds = new int[NETWORKS];
+        for (int i = 0; i < NETWORKS; i++)
+            seeds[i] = i / 2;
+        try (RemoteEvaluator remote = new RemoteEvaluator(List.of(server.getLocalAddress()))) {
+            remote.evaluate(networks, seeds, MAX_TICKS);
+        }
+        for (int i = 0; i < NETWORKS; i++) {
+            AiFeedForwardController local = new AiFeedForwardController(networks[i].getGenome());
+            local.calculateAndSetFitness(seeds[i], MAX_TICKS);
+            assertEquals(local.getFitness(), networks[i].getFitness());
+        }
+    }
+}